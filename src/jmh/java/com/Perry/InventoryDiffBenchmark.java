@@ -0,0 +1,46 @@
+package com.Perry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Cost of running one inventory event stream through {@link ShadowEngine}, as processInventoryChange does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryDiffBenchmark {
+
+	@Param({"SINGLE_MOVE", "BANK_ALL", "DROP_ALL", "RESTOCK"})
+	public InventoryStreams.Scenario scenario;
+
+	private int[][] events;
+	private final ShadowEngine engine = new ShadowEngine(InventoryStreams.SIZE, id -> id);
+
+	@Setup
+	public void setUp() {
+		events = InventoryStreams.build(scenario);
+		engine.initialize(InventoryStreams.start(), InventoryStreams.SIZE);
+	}
+
+	/** Replays the whole stream; returns the shadow count so the work can't be eliminated. */
+	@Benchmark
+	public int diffStream() {
+		for (int[] layout : events) {
+			engine.apply(layout, InventoryStreams.SIZE);
+		}
+		return engine.getShadows().size();
+	}
+}
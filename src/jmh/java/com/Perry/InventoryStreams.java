@@ -0,0 +1,91 @@
+package com.Perry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Synthetic inventory event streams for the benchmarks. Each stream is the sequence of item-ID
+ * layouts the client would report, starting from {@link #start()} and ending back on it so a
+ * stream can be replayed in a loop.
+ */
+final class InventoryStreams {
+
+	static final int SIZE = PerryVentoryPlugin.INVENTORY_SIZE;
+	private static final int SHARK = 385;
+	private static final int PRAYER_POTION = 2434;
+
+	enum Scenario {
+		/** Drag one item to another slot and back. */
+		SINGLE_MOVE,
+		/** Deposit the whole inventory in one event, then withdraw it all again. */
+		BANK_ALL,
+		/** Drop every item one event at a time, then pick them back up one at a time. */
+		DROP_ALL,
+		/** Eat eight sharks and drink four potions, then withdraw replacements one by one. */
+		RESTOCK
+	}
+
+	private InventoryStreams() {
+	}
+
+	/** A PvM-style layout with duplicate food and potions. */
+	static int[] start() {
+		int[] layout = new int[SIZE];
+		for (int slot = 0; slot < SIZE; slot++) {
+			if (slot < 8) {
+				layout[slot] = 20000 + slot;
+			} else if (slot < 12) {
+				layout[slot] = PRAYER_POTION;
+			} else if (slot < 26) {
+				layout[slot] = SHARK;
+			} else {
+				layout[slot] = SlotTable.EMPTY;
+			}
+		}
+		return layout;
+	}
+
+	static int[][] build(Scenario scenario) {
+		int[] start = start();
+		List<int[]> events = new ArrayList<>();
+		int[] current = start.clone();
+		switch (scenario) {
+			case SINGLE_MOVE:
+				current[0] = SlotTable.EMPTY;
+				current[27] = start[0];
+				events.add(current.clone());
+				break;
+			case BANK_ALL:
+				Arrays.fill(current, SlotTable.EMPTY);
+				events.add(current.clone());
+				break;
+			case DROP_ALL:
+				for (int slot = 0; slot < SIZE; slot++) {
+					if (current[slot] != SlotTable.EMPTY) {
+						current[slot] = SlotTable.EMPTY;
+						events.add(current.clone());
+					}
+				}
+				for (int slot = 0; slot < SIZE; slot++) {
+					if (start[slot] != SlotTable.EMPTY) {
+						current[slot] = start[slot];
+						events.add(current.clone());
+					}
+				}
+				break;
+			case RESTOCK:
+				for (int slot = 8; slot < 20; slot++) {
+					current[slot] = SlotTable.EMPTY;
+					events.add(current.clone());
+				}
+				for (int slot = 8; slot < 20; slot++) {
+					current[slot] = start[slot];
+					events.add(current.clone());
+				}
+				break;
+		}
+		events.add(start.clone());
+		return events.toArray(new int[0][]);
+	}
+}
@@ -0,0 +1,115 @@
+package com.Perry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/** Per-frame overlay cost, rendering into an offscreen canvas the size of the fixed-mode client. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlayRenderBenchmark {
+
+	/** Fixed-mode inventory slot positions: 4 columns of 42px, 7 rows of 36px. */
+	static final SlotBounds FIXED_INVENTORY = new SlotBounds() {
+		@Override
+		public boolean hasSlot(int slot) {
+			return slot >= 0 && slot < InventoryStreams.SIZE;
+		}
+
+		@Override
+		public int getX(int slot) {
+			return 563 + (slot % 4) * 42;
+		}
+
+		@Override
+		public int getY(int slot) {
+			return 213 + (slot / 4) * 36;
+		}
+
+		@Override
+		public int getWidth(int slot) {
+			return 36;
+		}
+
+		@Override
+		public int getHeight(int slot) {
+			return 32;
+		}
+
+		@Override
+		public int getVersion() {
+			return 1;
+		}
+	};
+
+	@Param({"0", "14", "28"})
+	public int shadows;
+
+	private final ShadowEngine engine = new ShadowEngine(InventoryStreams.SIZE, id -> id);
+	private ShadowSnapshot snapshot;
+	private final ShadowLayer layer = new ShadowLayer();
+	private BufferedImage sprite;
+	private BufferedImage canvas;
+	private Graphics2D graphics;
+
+	@Setup
+	public void setUp() {
+		BufferedImage item = new BufferedImage(36, 32, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = item.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillOval(4, 2, 28, 28);
+		g.dispose();
+		sprite = ShadowSpriteCache.buildSprite(item, ShadowStyle.FADED, new Color(0, 0, 0, 128));
+
+		for (int slot = 0; slot < shadows; slot++) {
+			engine.getShadows().put(slot, 20000 + slot);
+		}
+		engine.publish();
+		snapshot = engine.getSnapshot();
+		canvas = new BufferedImage(765, 503, BufferedImage.TYPE_INT_ARGB);
+		graphics = canvas.createGraphics();
+		layer.rebuild(snapshot, FIXED_INVENTORY, id -> sprite, 0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	/** Steady-state frame: nothing changed, the cached layer is blitted. */
+	@Benchmark
+	public int cachedFrame() {
+		if (layer.isStale(snapshot, FIXED_INVENTORY, 0)) {
+			layer.rebuild(snapshot, FIXED_INVENTORY, id -> sprite, 0);
+		}
+		layer.draw(graphics);
+		return layer.getShadowCount();
+	}
+
+	/** Frame right after a state change: the layer is re-composited, then blitted. */
+	@Benchmark
+	public int rebuildFrame() {
+		layer.invalidate();
+		layer.rebuild(snapshot, FIXED_INVENTORY, id -> sprite, 0);
+		layer.draw(graphics);
+		return layer.getShadowCount();
+	}
+}
@@ -0,0 +1,70 @@
+package com.Perry;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Save/load serialisation cost of the automatic shadow table, compact codec versus legacy JSON. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShadowPersistenceBenchmark {
+
+	@Param({"0", "14", "28"})
+	public int shadows;
+
+	private final SlotTable table = new SlotTable(InventoryStreams.SIZE);
+	private final SlotTable target = new SlotTable(InventoryStreams.SIZE);
+	private final Gson legacyGson = new GsonBuilder()
+			.registerTypeAdapter(SlotTable.class, new SlotTableTypeAdapter(InventoryStreams.SIZE))
+			.create();
+	private String encoded;
+	private String json;
+
+	@Setup
+	public void setUp() {
+		int[] layout = InventoryStreams.start();
+		table.clear();
+		for (int slot = 0; slot < shadows; slot++) {
+			table.put(slot, layout[slot] != SlotTable.EMPTY ? layout[slot] : 995);
+		}
+		encoded = ShadowCodec.encode(table);
+		json = legacyGson.toJson(table, SlotTable.class);
+	}
+
+	@Benchmark
+	public String encode() {
+		return ShadowCodec.encode(table);
+	}
+
+	@Benchmark
+	public SlotTable decode() {
+		ShadowCodec.decode(encoded, target);
+		return target;
+	}
+
+	@Benchmark
+	public String legacyJsonEncode() {
+		return legacyGson.toJson(table, SlotTable.class);
+	}
+
+	@Benchmark
+	public SlotTable legacyJsonDecode() {
+		return legacyGson.fromJson(json, SlotTable.class);
+	}
+}
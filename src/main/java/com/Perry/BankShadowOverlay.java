@@ -0,0 +1,83 @@
+package com.Perry;
+
+import com.google.inject.Inject;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetInfo;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the bank's automatic shadows. A bank shadow marks where a withdrawn item stood, in front of
+ * the item that moved up into its slot, so it is drawn at half size in that slot's top-left corner
+ * rather than covering the real item.
+ * <p>
+ * Bank slots move with every scroll, tab switch and search, so positions are read from the item
+ * widgets each frame; only slots holding a shadow are visited, and hidden or scrolled-out slots are
+ * skipped. Drawing is clipped to the visible item area.
+ */
+public class BankShadowOverlay extends Overlay {
+
+	private final PerryVentoryPlugin plugin;
+	private final ShadowSpriteCache spriteCache;
+	private final Client client;
+
+	@Inject
+	public BankShadowOverlay(PerryVentoryPlugin plugin, ShadowSpriteCache spriteCache, Client client) {
+		this.plugin = plugin;
+		this.spriteCache = spriteCache;
+		this.client = client;
+		setPosition(OverlayPosition.DYNAMIC);
+		setLayer(OverlayLayer.ABOVE_WIDGETS);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics) {
+		if (client.getGameState() != GameState.LOGGED_IN) {
+			return null;
+		}
+		ShadowSnapshot snapshot = plugin.getContainerSnapshot(TrackedContainer.BANK);
+		if (snapshot.isEmpty()) {
+			return null;
+		}
+		Widget container = client.getWidget(WidgetInfo.BANK_ITEM_CONTAINER);
+		if (container == null || container.isHidden()) {
+			return null;
+		}
+		Widget[] items = container.getDynamicChildren();
+		Rectangle visible = container.getBounds();
+		if (items == null || visible == null) {
+			return null;
+		}
+
+		Shape clip = graphics.getClip();
+		graphics.clip(visible);
+		try {
+			for (int slot = snapshot.nextSlot(0); slot != -1 && slot < items.length; slot = snapshot.nextSlot(slot + 1)) {
+				Widget item = items[slot];
+				if (item == null || item.isHidden()) {
+					continue; // Another tab, or filtered out by a search
+				}
+				Rectangle bounds = item.getBounds();
+				if (bounds == null || !visible.intersects(bounds)) {
+					continue;
+				}
+				BufferedImage sprite = spriteCache.get(snapshot.get(slot));
+				if (sprite != null) {
+					graphics.drawImage(sprite, bounds.x, bounds.y, sprite.getWidth() / 2, sprite.getHeight() / 2, null);
+				}
+			}
+		} finally {
+			graphics.setClip(clip);
+		}
+		return null;
+	}
+}
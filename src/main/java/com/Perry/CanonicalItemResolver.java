@@ -0,0 +1,203 @@
+package com.Perry;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemID;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.game.ItemVariationMapping;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Maps every item ID onto the ID shadows are stored and matched under, so that equivalent
+ * items share one shadow: coin variants, noted/unnoted pairs, bank placeholders, potion doses
+ * and charged jewellery/equipment variants.
+ * <p>
+ * Each ID is resolved once and memoised: in a table sized once from the client's item count,
+ * or for IDs beyond it (or seen before the count is known) in a small open-addressing map, so
+ * every later lookup is a couple of array reads. {@link #warm} resolves the IDs the current
+ * layout is likely to produce at login, so item definitions are rarely looked up from inside a
+ * container diff. Must be used from the client thread, as {@link ItemManager} requires.
+ */
+@Slf4j
+@Singleton
+public class CanonicalItemResolver {
+
+	private static final int UNRESOLVED = -1;
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private final Client client;
+	private final ItemManager itemManager;
+
+	private int[] table = new int[0];
+
+	// IDs outside the table: open addressing, kept at most half full
+	private int[] overflowKeys = freeKeys(16);
+	private int[] overflowValues = new int[16];
+	private int overflowSize;
+
+	@Inject
+	public CanonicalItemResolver(Client client, ItemManager itemManager) {
+		this.client = client;
+		this.itemManager = itemManager;
+	}
+
+	/** Returns the canonical ID for an item, or the ID unchanged if it is negative (empty slot). */
+	public int resolve(int itemId) {
+		if (itemId < 0) {
+			return itemId;
+		}
+		if (itemId < table.length) {
+			int canonical = table[itemId];
+			if (canonical == UNRESOLVED) {
+				canonical = compute(itemId);
+				table[itemId] = canonical;
+			}
+			return canonical;
+		}
+		if (table.length == 0 && allocate() && itemId < table.length) {
+			return resolve(itemId);
+		}
+		int bucket = find(itemId);
+		if (overflowKeys[bucket] == FREE) {
+			int canonical = compute(itemId);
+			storeOverflow(itemId, canonical);
+			return canonical;
+		}
+		return overflowValues[bucket];
+	}
+
+	/** Resolves and memoises IDs ahead of use, e.g. those from {@link #warmUpIds}. */
+	public void warm(int[] itemIds) {
+		for (int itemId : itemIds) {
+			resolve(itemId);
+		}
+		log.debug("Canonical item table warmed with {} IDs.", itemIds.length);
+	}
+
+	/**
+	 * The IDs that resolve onto the given shadows: each shadowed item and its known variations
+	 * (other doses, charges and the like), which are what a returning item shows up as. Uses no
+	 * client state, so it can run on the executor.
+	 */
+	public static int[] warmUpIds(SlotTable... shadowTables) {
+		Set<Integer> ids = new LinkedHashSet<>();
+		for (SlotTable shadows : shadowTables) {
+			for (int slot = shadows.nextSlot(0); slot != -1; slot = shadows.nextSlot(slot + 1)) {
+				int itemId = shadows.get(slot);
+				if (ids.add(itemId)) {
+					Collection<Integer> variations = ItemVariationMapping.getVariations(itemId);
+					if (variations != null) {
+						ids.addAll(variations);
+					}
+				}
+			}
+		}
+		int[] result = new int[ids.size()];
+		int i = 0;
+		for (int itemId : ids) {
+			result[i++] = itemId;
+		}
+		return result;
+	}
+
+	/** Drops every memoised ID, e.g. on shutdown; the table is sized again on next use. */
+	public void reset() {
+		table = new int[0];
+		overflowKeys = freeKeys(16);
+		overflowValues = new int[16];
+		overflowSize = 0;
+	}
+
+	// Sizes the table once; false while the client doesn't know its item count yet
+	private boolean allocate() {
+		int itemCount = client.getItemCount();
+		if (itemCount <= 0) {
+			return false;
+		}
+		table = new int[itemCount];
+		Arrays.fill(table, UNRESOLVED);
+		// IDs resolved before the count was known move into the table
+		int[] keys = overflowKeys;
+		int[] values = overflowValues;
+		overflowKeys = freeKeys(keys.length);
+		overflowValues = new int[keys.length];
+		overflowSize = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == FREE) {
+				continue;
+			}
+			if (keys[i] < itemCount) {
+				table[keys[i]] = values[i];
+			} else {
+				storeOverflow(keys[i], values[i]);
+			}
+		}
+		log.debug("Canonical item table sized for {} item IDs.", itemCount);
+		return true;
+	}
+
+	private void storeOverflow(int itemId, int canonical) {
+		if ((overflowSize + 1) * 2 > overflowKeys.length) {
+			int[] keys = overflowKeys;
+			int[] values = overflowValues;
+			overflowKeys = freeKeys(keys.length * 2);
+			overflowValues = new int[keys.length * 2];
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != FREE) {
+					int bucket = find(keys[i]);
+					overflowKeys[bucket] = keys[i];
+					overflowValues[bucket] = values[i];
+				}
+			}
+		}
+		int bucket = find(itemId);
+		overflowKeys[bucket] = itemId;
+		overflowValues[bucket] = canonical;
+		overflowSize++;
+	}
+
+	private int find(int itemId) {
+		int mask = overflowKeys.length - 1;
+		int h = itemId * 0x9E3779B9;
+		int bucket = (h ^ (h >>> 16)) & mask;
+		while (overflowKeys[bucket] != FREE && overflowKeys[bucket] != itemId) {
+			bucket = (bucket + 1) & mask;
+		}
+		return bucket;
+	}
+
+	private static int[] freeKeys(int size) {
+		int[] keys = new int[size];
+		Arrays.fill(keys, FREE);
+		return keys;
+	}
+
+	private int compute(int itemId) {
+		int id = itemId;
+		try {
+			ItemComposition definition = itemManager.getItemComposition(id);
+			if (definition.getNote() != -1) {
+				id = definition.getLinkedNoteId(); // Noted -> unnoted
+			} else if (definition.getPlaceholderTemplateId() != -1) {
+				id = definition.getPlaceholderId(); // Placeholder -> real item
+			}
+			if (id != itemId) {
+				definition = itemManager.getItemComposition(id);
+			}
+			if ("Coins".equalsIgnoreCase(definition.getName())) {
+				return ItemID.COINS_995;
+			}
+		} catch (Exception e) {
+			log.warn("Could not look up item definition for ID {}: {}", itemId, e.getMessage());
+		}
+		// Potion doses, charged jewellery and other variants collapse onto their base item
+		return ItemVariationMapping.map(id);
+	}
+}
@@ -0,0 +1,178 @@
+package com.Perry;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches the plugin's own config edits and recognises the {@link ConfigChanged} events they echo back.
+ * <p>
+ * A {@link Transaction} reads each key from {@link ConfigManager} at most once and keeps writes
+ * in memory. {@link Transaction#commit()} then writes only the keys whose value actually changes,
+ * once each. Every committed write is registered as an expected echo, so the plugin can drop its
+ * own event in {@link #isEcho(ConfigChanged)} instead of reprocessing state it has already
+ * applied. An expected echo expires after {@value #ECHO_TIMEOUT_MILLIS} ms, so a write that never
+ * produces an event (the store already held that value) can't swallow a later real edit of the key.
+ * Global (non-profile) keys of the plugin's config group only.
+ */
+@Slf4j
+@Singleton
+public class ConfigTransactions {
+
+	static final long ECHO_TIMEOUT_MILLIS = 5000;
+
+	private final ConfigManager configManager;
+
+	// Key -> write we haven't seen the event for yet; guarded by itself
+	private final Map<String, Echo> expectedEchoes = new HashMap<>();
+
+	private static final class Echo {
+		final String value; // null for an unset
+		final long deadline;
+
+		Echo(String value, long deadline) {
+			this.value = value;
+			this.deadline = deadline;
+		}
+	}
+
+	@Inject
+	public ConfigTransactions(ConfigManager configManager) {
+		this.configManager = configManager;
+	}
+
+	public Transaction begin() {
+		return new Transaction();
+	}
+
+	/** True, and consumed, if the event is the echo of a committed write. */
+	public boolean isEcho(ConfigChanged event) {
+		if (event.getProfile() != null || !PerryVentoryPlugin.CONFIG_GROUP.equals(event.getGroup())) {
+			return false;
+		}
+		synchronized (expectedEchoes) {
+			Echo echo = expectedEchoes.get(event.getKey());
+			if (echo == null) {
+				return false;
+			}
+			if (System.nanoTime() - echo.deadline > 0) {
+				expectedEchoes.remove(event.getKey());
+				return false;
+			}
+			if (!Objects.equals(echo.value, event.getNewValue())) {
+				return false;
+			}
+			expectedEchoes.remove(event.getKey());
+			return true;
+		}
+	}
+
+	// Caller holds expectedEchoes
+	private void expireEchoes(long now) {
+		expectedEchoes.values().removeIf(echo -> now - echo.deadline > 0);
+	}
+
+	/** Staged reads and writes; not thread-safe, use from one thread and commit once. */
+	public final class Transaction {
+
+		// Value seen or staged per key; null means unset
+		private final Map<String, String> values = new HashMap<>();
+		private final Map<String, String> original = new HashMap<>();
+		private final Map<String, String> writes = new LinkedHashMap<>();
+
+		private Transaction() {
+		}
+
+		/** The key's value including staged writes; read from config on first access only. */
+		public String get(String key) {
+			if (!values.containsKey(key)) {
+				String value = configManager.getConfiguration(PerryVentoryPlugin.CONFIG_GROUP, key);
+				values.put(key, value);
+				original.put(key, value);
+			}
+			return values.get(key);
+		}
+
+		/**
+		 * Records a key's current value from state the caller already mirrors, so staging a write to
+		 * it needs no config read. Ignored if the key was already read or staged.
+		 */
+		public void assume(String key, String value) {
+			if (!values.containsKey(key)) {
+				values.put(key, value);
+				original.put(key, value);
+			}
+		}
+
+		/** True if the key holds a non-blank value. */
+		public boolean isSet(String key) {
+			String value = get(key);
+			return value != null && !value.isEmpty();
+		}
+
+		public void set(String key, String value) {
+			get(key); // Remember the original so an unchanged value isn't written
+			values.put(key, value);
+			writes.put(key, value);
+		}
+
+		public void unset(String key) {
+			set(key, null);
+		}
+
+		/**
+		 * Writes every staged key whose value differs from what was read, in staging order.
+		 * @return the number of keys written
+		 */
+		public int commit() {
+			int written = 0;
+			long now = System.nanoTime();
+			long deadline = now + TimeUnit.MILLISECONDS.toNanos(ECHO_TIMEOUT_MILLIS);
+			if (!writes.isEmpty()) {
+				synchronized (expectedEchoes) {
+					expireEchoes(now);
+				}
+			}
+			for (Map.Entry<String, String> write : writes.entrySet()) {
+				String key = write.getKey();
+				String value = emptyToNull(write.getValue());
+				if (Objects.equals(value, emptyToNull(original.get(key)))) {
+					continue;
+				}
+				synchronized (expectedEchoes) {
+					expectedEchoes.put(key, new Echo(value, deadline));
+				}
+				try {
+					if (value == null) {
+						configManager.unsetConfiguration(PerryVentoryPlugin.CONFIG_GROUP, key);
+					} else {
+						configManager.setConfiguration(PerryVentoryPlugin.CONFIG_GROUP, key, value);
+					}
+					original.put(key, value);
+					written++;
+				} catch (Exception e) {
+					synchronized (expectedEchoes) {
+						expectedEchoes.remove(key);
+					}
+					log.error("Failed to write config key {}", key, e);
+				}
+			}
+			writes.clear();
+			log.debug("Config transaction committed {} key(s).", written);
+			return written;
+		}
+
+		// Blank and unset read the same to every getter in this plugin
+		private String emptyToNull(String value) {
+			return value == null || value.isEmpty() ? null : value;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.Perry;
+
+/**
+ * Slot-by-slot diff between two container layouts, reduced to per-item surpluses.
+ * <p>
+ * Every changed slot contributes its old item to a "removed" multiset and its new item to an
+ * "added" multiset. Counts present on both sides cancel out: those units were moved, not gained
+ * or lost. What is left over is the surplus that may create shadows (removed) or clear them
+ * (added), which keeps duplicate stacks of the same item unambiguous. The comparison is one pass
+ * over the slots; everything after it, including resetting for the next call, is O(changed slots),
+ * and the same buffers are reused between calls.
+ */
+public final class InventoryDiff {
+
+	private final SlotTable removed;
+	private final SlotTable added;
+	private final ItemCountTable removedSurplus;
+	private final ItemCountTable addedSurplus;
+	private final int[] changed;
+	private int changedSlots;
+
+	public InventoryDiff(int capacity) {
+		removed = new SlotTable(capacity);
+		added = new SlotTable(capacity);
+		removedSurplus = new ItemCountTable(capacity);
+		addedSurplus = new ItemCountTable(capacity);
+		changed = new int[capacity];
+	}
+
+	/**
+	 * Diffs {@code previous} against {@code current}.
+	 * @param current item ID per slot, {@link SlotTable#EMPTY} for empty slots
+	 * @param size number of slots in {@code current} to compare
+	 */
+	public void compute(SlotTable previous, int[] current, int size) {
+		for (int i = 0; i < changedSlots; i++) {
+			removed.remove(changed[i]);
+			added.remove(changed[i]);
+		}
+		removedSurplus.clear();
+		addedSurplus.clear();
+		changedSlots = 0;
+
+		int limit = Math.min(size, removed.capacity());
+		for (int slot = 0; slot < limit; slot++) {
+			int previousItemId = previous.get(slot);
+			int currentItemId = current[slot];
+			if (previousItemId == currentItemId) {
+				continue;
+			}
+			changed[changedSlots++] = slot;
+			if (previousItemId != SlotTable.EMPTY) {
+				removed.put(slot, previousItemId);
+				removedSurplus.add(previousItemId, 1);
+			}
+			if (currentItemId != SlotTable.EMPTY) {
+				added.put(slot, currentItemId);
+				addedSurplus.add(currentItemId, 1);
+			}
+		}
+
+		// Cancel out units that show up on both sides; they only changed slot.
+		for (int i = 0; i < removedSurplus.distinctIds(); i++) {
+			int itemId = removedSurplus.idAt(i);
+			int moved = Math.min(removedSurplus.get(itemId), addedSurplus.get(itemId));
+			if (moved > 0) {
+				removedSurplus.add(itemId, -moved);
+				addedSurplus.add(itemId, -moved);
+			}
+		}
+	}
+
+	/** Ints held by the diff's arrays, for memory estimates. */
+	int retainedInts() {
+		return removed.capacity() + added.capacity() + changed.length
+				+ removedSurplus.retainedInts() + addedSurplus.retainedInts();
+	}
+
+	/** Old item per changed slot. */
+	public SlotTable removed() {
+		return removed;
+	}
+
+	/** New item per changed slot. */
+	public SlotTable added() {
+		return added;
+	}
+
+	public int changedSlots() {
+		return changedSlots;
+	}
+
+	/** The i-th changed slot in ascending order, 0 &lt;= i &lt; {@link #changedSlots()}. */
+	public int changedSlotAt(int i) {
+		return changed[i];
+	}
+
+	/** Consumes one unit of an item's removal surplus; true means this removal should leave a shadow. */
+	public boolean takeRemoved(int itemId) {
+		return removedSurplus.take(itemId);
+	}
+
+	/** Consumes one unit of an item's addition surplus; true means this addition should clear a shadow. */
+	public boolean takeAdded(int itemId) {
+		return addedSurplus.take(itemId);
+	}
+}
@@ -0,0 +1,36 @@
+package com.Perry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR event covering one pass of the automatic shadow engine over an inventory change. */
+@Name("com.Perry.InventoryDiff")
+@Label("Inventory Diff")
+@Description("Processing of one inventory change by the automatic shadow engine")
+@Category({"PerryVentory"})
+@StackTrace(false)
+class InventoryDiffEvent extends jdk.jfr.Event {
+
+	@Label("Events Folded")
+	@Description("Container updates covered by this pass (more than one in the batched modes)")
+	int eventsFolded;
+
+	@Label("Layout Unchanged")
+	@Description("Skipped by the fingerprint check (quantity-only update)")
+	boolean skipped;
+
+	@Label("Slots Changed")
+	int slotsChanged;
+
+	@Label("Shadows Added")
+	int shadowsAdded;
+
+	@Label("Shadows Removed")
+	int shadowsRemoved;
+
+	@Label("Shadows Relocated")
+	int shadowsRelocated;
+}
@@ -0,0 +1,22 @@
+package com.Perry;
+
+import lombok.Getter;
+
+/** When inventory changes are diffed into shadow state. */
+public enum InventoryProcessingMode {
+	PER_EVENT("Every change"),
+	CLIENT_TICK("Once per frame"),
+	GAME_TICK("Once per game tick");
+
+	@Getter
+	private final String displayName;
+
+	InventoryProcessingMode(String displayName) {
+		this.displayName = displayName;
+	}
+
+	@Override
+	public String toString() {
+		return displayName;
+	}
+}
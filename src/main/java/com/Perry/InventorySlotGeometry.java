@@ -0,0 +1,127 @@
+package com.Perry;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetInfo;
+
+/**
+ * Cached canvas bounds of the 28 inventory slots.
+ * <p>
+ * The widget tree is walked once and the slot rectangles are kept in flat arrays until
+ * {@link #invalidate()} is called by the plugin on widget load/close, canvas resize, interface
+ * mode change or widget dragging. Per frame the overlay pays for one visibility check on the
+ * cached inventory widget plus array reads.
+ */
+@Slf4j
+@Singleton
+public class InventorySlotGeometry implements SlotBounds {
+
+	private final Client client;
+	private final PerryMetrics metrics;
+
+	private final int[] x = new int[PerryVentoryPlugin.INVENTORY_SIZE];
+	private final int[] y = new int[PerryVentoryPlugin.INVENTORY_SIZE];
+	private final int[] width = new int[PerryVentoryPlugin.INVENTORY_SIZE];
+	private final int[] height = new int[PerryVentoryPlugin.INVENTORY_SIZE];
+	private final boolean[] present = new boolean[PerryVentoryPlugin.INVENTORY_SIZE];
+
+	private Widget inventoryWidget;
+	private volatile boolean valid;
+	private int version;
+
+	@Inject
+	public InventorySlotGeometry(Client client, PerryMetrics metrics) {
+		this.client = client;
+		this.metrics = metrics;
+	}
+
+	/** Forces the next {@link #refresh()} to re-read the widget tree. */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/** Incremented every time the slot rectangles are re-read. */
+	public int getVersion() {
+		return version;
+	}
+
+	/** Checks if the main inventory widget is currently visible. */
+	public boolean isInventoryVisible() {
+		if (inventoryWidget == null || !valid) {
+			inventoryWidget = client.getWidget(WidgetInfo.INVENTORY);
+		}
+		// Return true only if the widget exists AND is not hidden
+		return inventoryWidget != null && !inventoryWidget.isHidden();
+	}
+
+	/**
+	 * Re-reads the slot rectangles if they were invalidated.
+	 * @return true if the cached geometry is usable
+	 */
+	public boolean refresh() {
+		metrics.recordGeometryLookup(valid);
+		if (valid) {
+			return true;
+		}
+		Widget widget = client.getWidget(WidgetInfo.INVENTORY);
+		inventoryWidget = widget;
+		if (widget == null) {
+			log.debug("Slot geometry: inventory widget not loaded.");
+			return false;
+		}
+		Widget[] children = widget.getChildren();
+		if (children == null) {
+			log.debug("Slot geometry: inventory widget has no children yet.");
+			return false;
+		}
+
+		int found = 0;
+		for (int slot = 0; slot < present.length; slot++) {
+			present[slot] = false;
+			if (slot >= children.length || children[slot] == null) {
+				continue;
+			}
+			net.runelite.api.Point canvasLocation = children[slot].getCanvasLocation();
+			if (canvasLocation == null || canvasLocation.getX() < 0 || canvasLocation.getY() < 0) {
+				continue;
+			}
+			x[slot] = canvasLocation.getX();
+			y[slot] = canvasLocation.getY();
+			width[slot] = children[slot].getWidth();
+			height[slot] = children[slot].getHeight();
+			present[slot] = true;
+			found++;
+		}
+		if (found == 0) {
+			// Layout not settled yet (e.g. first frame after login); try again next frame
+			return false;
+		}
+		valid = true;
+		version++;
+		log.debug("Slot geometry refreshed: {} slots located.", found);
+		return true;
+	}
+
+	public boolean hasSlot(int slot) {
+		return slot >= 0 && slot < present.length && present[slot];
+	}
+
+	public int getX(int slot) {
+		return x[slot];
+	}
+
+	public int getY(int slot) {
+		return y[slot];
+	}
+
+	public int getWidth(int slot) {
+		return width[slot];
+	}
+
+	public int getHeight(int slot) {
+		return height[slot];
+	}
+}
@@ -0,0 +1,134 @@
+package com.Perry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain-text recording of a container's item-ID layouts, for replaying through
+ * {@link ShadowEngine} offline.
+ * <p>
+ * The file starts with a {@value #HEADER} line. Every other non-blank line that doesn't start
+ * with '#' is one layout: the capture time in epoch milliseconds followed by the raw item ID of
+ * each slot (-1 for empty), comma separated. The first layout is the state when recording began;
+ * each following one is a container change.
+ */
+public final class InventoryTrace {
+
+	static final String HEADER = "# perryventory-trace v1";
+
+	/** One recorded layout. */
+	public static final class Frame {
+		public final long timestamp;
+		public final int[] itemIds;
+
+		Frame(long timestamp, int[] itemIds) {
+			this.timestamp = timestamp;
+			this.itemIds = itemIds;
+		}
+	}
+
+	/**
+	 * Appends layouts to a trace file. Buffered lines are flushed every {@value #FLUSH_RECORDS}
+	 * layouts or {@value #FLUSH_INTERVAL_MILLIS} ms of capture time, whichever comes first, so a
+	 * crash or a reader tailing the file loses at most that much of a long session.
+	 */
+	public static final class Recorder implements Closeable {
+		static final int FLUSH_RECORDS = 64;
+		static final long FLUSH_INTERVAL_MILLIS = 10_000;
+
+		private final BufferedWriter writer;
+		private final StringBuilder line = new StringBuilder(256);
+		private int unflushed;
+		private long lastFlush = Long.MIN_VALUE;
+
+		private Recorder(BufferedWriter writer) {
+			this.writer = writer;
+		}
+
+		public void record(long timestamp, int[] itemIds, int size) throws IOException {
+			line.setLength(0);
+			line.append(timestamp);
+			for (int slot = 0; slot < size; slot++) {
+				line.append(',').append(itemIds[slot]);
+			}
+			writer.write(line.toString());
+			writer.newLine();
+			if (lastFlush == Long.MIN_VALUE) {
+				lastFlush = timestamp;
+			}
+			if (++unflushed >= FLUSH_RECORDS || timestamp - lastFlush >= FLUSH_INTERVAL_MILLIS) {
+				flush();
+				lastFlush = timestamp;
+			}
+		}
+
+		public void flush() throws IOException {
+			writer.flush();
+			unflushed = 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+	}
+
+	private InventoryTrace() {
+	}
+
+	/** Creates (or truncates) a trace file and writes its header. */
+	public static Recorder create(Path file) throws IOException {
+		Path parent = file.getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		writer.write(HEADER);
+		writer.newLine();
+		return new Recorder(writer);
+	}
+
+	/**
+	 * Reads every layout in a trace file.
+	 * @throws IOException if the file can't be read or isn't a trace
+	 */
+	public static List<Frame> read(Path file) throws IOException {
+		List<Frame> frames = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			if (!HEADER.equals(header)) {
+				throw new IOException("Not a PerryVentory trace (bad header): " + file);
+			}
+			String line;
+			int lineNumber = 1;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split(",");
+				try {
+					long timestamp = Long.parseLong(fields[0].trim());
+					int[] itemIds = new int[fields.length - 1];
+					for (int i = 1; i < fields.length; i++) {
+						itemIds[i - 1] = Integer.parseInt(fields[i].trim());
+					}
+					frames.add(new Frame(timestamp, itemIds));
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed trace line " + lineNumber + " in " + file, e);
+				}
+			}
+		}
+		return frames;
+	}
+}
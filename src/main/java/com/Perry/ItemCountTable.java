@@ -0,0 +1,92 @@
+package com.Perry;
+
+import java.util.Arrays;
+
+/**
+ * Reusable item ID -> count multiset using open addressing over flat int arrays.
+ * Clearing only touches the buckets used since the last clear, so a table sized for a
+ * whole container can be reset once per inventory event without allocating.
+ */
+public final class ItemCountTable {
+
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private final int[] keys;
+	private final int[] counts;
+	private final int[] used;
+	private final int mask;
+	private int usedCount;
+
+	/** @param maxDistinctIds the most distinct item IDs that will be added between clears */
+	public ItemCountTable(int maxDistinctIds) {
+		int capacity = Integer.highestOneBit(Math.max(maxDistinctIds, 1) * 2 - 1) << 1;
+		keys = new int[capacity];
+		counts = new int[capacity];
+		used = new int[capacity];
+		mask = capacity - 1;
+		Arrays.fill(keys, FREE);
+	}
+
+	/** Ints held by the table's arrays, for memory estimates. */
+	int retainedInts() {
+		return keys.length * 3;
+	}
+
+	/** Number of distinct item IDs currently held (including IDs whose count dropped to zero). */
+	public int distinctIds() {
+		return usedCount;
+	}
+
+	/** Item ID stored at the given index, 0 &lt;= index &lt; {@link #distinctIds()}. */
+	public int idAt(int index) {
+		return keys[used[index]];
+	}
+
+	public int get(int itemId) {
+		int bucket = find(itemId);
+		return keys[bucket] == FREE ? 0 : counts[bucket];
+	}
+
+	public void add(int itemId, int delta) {
+		int bucket = find(itemId);
+		if (keys[bucket] == FREE) {
+			keys[bucket] = itemId;
+			counts[bucket] = 0;
+			used[usedCount++] = bucket;
+		}
+		counts[bucket] += delta;
+	}
+
+	/**
+	 * Decrements the count for an item if it is positive.
+	 * @return true if a unit was taken
+	 */
+	public boolean take(int itemId) {
+		int bucket = find(itemId);
+		if (keys[bucket] == FREE || counts[bucket] <= 0) {
+			return false;
+		}
+		counts[bucket]--;
+		return true;
+	}
+
+	public void clear() {
+		for (int i = 0; i < usedCount; i++) {
+			keys[used[i]] = FREE;
+		}
+		usedCount = 0;
+	}
+
+	private int find(int itemId) {
+		int bucket = mix(itemId) & mask;
+		while (keys[bucket] != FREE && keys[bucket] != itemId) {
+			bucket = (bucket + 1) & mask;
+		}
+		return bucket;
+	}
+
+	private static int mix(int value) {
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
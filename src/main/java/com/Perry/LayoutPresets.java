@@ -0,0 +1,96 @@
+package com.Perry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parsing and key naming for named automatic-layout presets ("Zulrah", "Barrows", ...).
+ * <p>
+ * Presets are configured as one comma-separated list. The unnamed default layout is always
+ * available and keeps the original data key; each named preset gets its own key derived from
+ * its name, so its shadows go through {@link ShadowPersistence} like any other layout and stay
+ * per profile.
+ */
+public final class LayoutPresets {
+
+	/** Display name of the layout that exists without any preset configured. */
+	public static final String DEFAULT_NAME = "Default";
+
+	private LayoutPresets() {
+	}
+
+	/** Preset names in configured order, trimmed, without blanks, duplicates, unusable names or the default. */
+	public static List<String> parse(String configured) {
+		if (configured == null || configured.trim().isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<String> names = new ArrayList<>();
+		List<String> keys = new ArrayList<>();
+		for (String part : configured.split(",")) {
+			String name = part.trim();
+			if (name.isEmpty() || isDefault(name)) {
+				continue;
+			}
+			String key = keyPart(name);
+			if (!key.isEmpty() && !keys.contains(key)) {
+				keys.add(key);
+				names.add(name);
+			}
+		}
+		return Collections.unmodifiableList(names);
+	}
+
+	/** True for null/blank and the default layout's own name. */
+	public static boolean isDefault(String name) {
+		return name == null || name.trim().isEmpty() || name.trim().equalsIgnoreCase(DEFAULT_NAME);
+	}
+
+	/** Config key holding a preset's automatic shadows; the default layout keeps {@code baseKey}. */
+	public static String dataKey(String baseKey, String name) {
+		return isDefault(name) ? baseKey : baseKey + ".preset." + keyPart(name);
+	}
+
+	/**
+	 * The layout after {@code current} when cycling default -> each preset -> default.
+	 * An unknown current name starts over at the default.
+	 */
+	public static String next(List<String> presets, String current) {
+		if (presets.isEmpty()) {
+			return DEFAULT_NAME;
+		}
+		if (isDefault(current)) {
+			return presets.get(0);
+		}
+		int index = indexOf(presets, current);
+		return index == -1 || index == presets.size() - 1 ? DEFAULT_NAME : presets.get(index + 1);
+	}
+
+	/** Position of the name in the list ignoring case and spacing, or -1. */
+	public static int indexOf(List<String> presets, String name) {
+		if (name == null) {
+			return -1;
+		}
+		String key = keyPart(name);
+		for (int i = 0; i < presets.size(); i++) {
+			if (keyPart(presets.get(i)).equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// Lower-case letters and digits only, so any display name makes a safe config key
+	private static String keyPart(String name) {
+		StringBuilder sb = new StringBuilder(name.length());
+		for (char c : name.trim().toLowerCase(Locale.ROOT).toCharArray()) {
+			if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+				sb.append(c);
+			} else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '_') {
+				sb.append('_');
+			}
+		}
+		return sb.toString();
+	}
+}
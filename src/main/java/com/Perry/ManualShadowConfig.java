@@ -0,0 +1,139 @@
+package com.Perry;
+
+/**
+ * Parsing for the manual shadow settings: the per-slot {@code slotNItem} keys and the packed
+ * {@code manualLayout} value that holds a whole layout in one key.
+ * <p>
+ * The packed form is a list of {@code slot:itemId} pairs separated by commas or whitespace, with
+ * slots numbered 1-28 as in the config panel, e.g. {@code "1:12934, 2:12934, 28:8013"}. Writing
+ * it is a single config change, so pasting a full layout applies as one update. The plugin folds
+ * per-slot entries into the packed value and resets their keys, so it is the only stored state.
+ */
+public final class ManualShadowConfig {
+
+	public static final String LAYOUT_KEY = "manualLayout";
+
+	private static final String SLOT_KEY_PREFIX = "slot";
+	private static final String SLOT_KEY_SUFFIX = "Item";
+	private static final String[] SLOT_KEYS = new String[PerryVentoryPlugin.INVENTORY_SIZE];
+
+	static {
+		for (int slot = 0; slot < SLOT_KEYS.length; slot++) {
+			SLOT_KEYS[slot] = SLOT_KEY_PREFIX + slot + SLOT_KEY_SUFFIX;
+		}
+	}
+
+	private ManualShadowConfig() {
+	}
+
+	/** Config key of a slot's manual item ID. */
+	public static String slotKey(int slot) {
+		return SLOT_KEYS[slot];
+	}
+
+	/** The slot a {@code slotNItem} key belongs to, or -1 for any other key. */
+	public static int slotForKey(String key) {
+		if (!key.startsWith(SLOT_KEY_PREFIX) || !key.endsWith(SLOT_KEY_SUFFIX)
+				|| key.length() <= SLOT_KEY_PREFIX.length() + SLOT_KEY_SUFFIX.length()) {
+			return -1;
+		}
+		int slot = 0;
+		for (int i = SLOT_KEY_PREFIX.length(); i < key.length() - SLOT_KEY_SUFFIX.length(); i++) {
+			char c = key.charAt(i);
+			if (c < '0' || c > '9' || slot >= SLOT_KEYS.length) {
+				return -1;
+			}
+			slot = slot * 10 + (c - '0');
+		}
+		return slot < SLOT_KEYS.length ? slot : -1;
+	}
+
+	/** A positive item ID from a per-slot value, or {@link SlotTable#EMPTY} for blank or invalid input. */
+	public static int parseItemId(String value) {
+		if (value == null) {
+			return SlotTable.EMPTY;
+		}
+		String trimmed = value.trim();
+		if (trimmed.isEmpty()) {
+			return SlotTable.EMPTY;
+		}
+		try {
+			int itemId = Integer.parseInt(trimmed);
+			return itemId > 0 ? itemId : SlotTable.EMPTY;
+		} catch (NumberFormatException e) {
+			return SlotTable.EMPTY;
+		}
+	}
+
+	/**
+	 * Parses a packed layout into {@code target}, which is cleared first. Malformed pairs and
+	 * slots outside the target are skipped; a later pair for the same slot wins.
+	 * @return the number of pairs skipped
+	 */
+	public static int parseLayout(String packed, SlotTable target) {
+		target.clear();
+		if (packed == null) {
+			return 0;
+		}
+		int skipped = 0;
+		int length = packed.length();
+		int pos = 0;
+		while (pos < length) {
+			while (pos < length && isSeparator(packed.charAt(pos))) {
+				pos++;
+			}
+			int start = pos;
+			while (pos < length && !isSeparator(packed.charAt(pos))) {
+				pos++;
+			}
+			if (start == pos) {
+				break;
+			}
+			int colon = packed.indexOf(':', start);
+			if (colon == -1 || colon >= pos) {
+				skipped++;
+				continue;
+			}
+			int slot = parseNumber(packed, start, colon) - 1;
+			int itemId = parseNumber(packed, colon + 1, pos);
+			if (slot < 0 || slot >= target.capacity() || itemId <= 0) {
+				skipped++;
+				continue;
+			}
+			target.put(slot, itemId);
+		}
+		return skipped;
+	}
+
+	/** Packs a layout back into the form {@link #parseLayout} reads; empty for an empty table. */
+	public static String encodeLayout(SlotTable layout) {
+		StringBuilder sb = new StringBuilder(layout.size() * 9);
+		for (int slot = layout.nextSlot(0); slot != -1; slot = layout.nextSlot(slot + 1)) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(slot + 1).append(':').append(layout.get(slot));
+		}
+		return sb.toString();
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == ',' || c == ';' || Character.isWhitespace(c);
+	}
+
+	// Digits only, -1 if empty, not a number or out of int range
+	private static int parseNumber(String s, int from, int to) {
+		if (from >= to || to - from > 9) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+}
@@ -0,0 +1,28 @@
+package com.Perry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR event covering one frame of {@link ReservedSlotOverlay#render}. */
+@Name("com.Perry.OverlayRender")
+@Label("Overlay Render")
+@Description("One frame of the shadow overlay")
+@Category({"PerryVentory"})
+@StackTrace(false)
+class OverlayRenderEvent extends jdk.jfr.Event {
+
+	@Label("Shadows Drawn")
+	int shadowsDrawn;
+
+	@Label("Layer Rebuilt")
+	boolean layerRebuilt;
+
+	@Label("Sprite Cache Hits")
+	int spriteCacheHits;
+
+	@Label("Sprite Cache Misses")
+	int spriteCacheMisses;
+}
@@ -0,0 +1,130 @@
+package com.Perry;
+
+import com.google.inject.Inject;
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.util.Arrays;
+
+/**
+ * Debug panel with the plugin's own runtime cost, fed by {@link PerryMetrics}.
+ * <p>
+ * Timing percentiles and per-minute rates cover the last completed window of
+ * {@value #WINDOW_MILLIS} ms, so they settle quickly after a change instead of averaging
+ * over the whole session. Saves count every persistence write: full layouts in config plus
+ * journal appends and compactions, which are also shown on their own. Counters and cache hit
+ * rates are totals since startup.
+ */
+public class PerformanceHudOverlay extends OverlayPanel {
+
+	static final long WINDOW_MILLIS = 5000;
+
+	private final PerryVentoryPlugin plugin;
+	private final PerryMetrics metrics;
+	private final ShadowSpriteCache spriteCache;
+
+	private final long[] renderCounts = new long[PerryMetrics.Histogram.BUCKETS];
+	private final long[] diffCounts = new long[PerryMetrics.Histogram.BUCKETS];
+	private long windowStart;
+	private long windowSaves;
+	private long windowBytes;
+	private long windowJournalWrites;
+	private long windowJournalBytes;
+
+	// Results of the last completed window
+	private long renderP50 = -1;
+	private long renderP99 = -1;
+	private long diffP50 = -1;
+	private long diffP99 = -1;
+	private double savesPerMinute;
+	private double bytesPerMinute;
+	private double journalWritesPerMinute;
+	private double journalBytesPerMinute;
+
+	@Inject
+	public PerformanceHudOverlay(PerryVentoryPlugin plugin, PerryMetrics metrics, ShadowSpriteCache spriteCache) {
+		this.plugin = plugin;
+		this.metrics = metrics;
+		this.spriteCache = spriteCache;
+		setPosition(OverlayPosition.TOP_LEFT);
+		panelComponent.setPreferredSize(new Dimension(170, 0));
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics) {
+		// The plugin mirrors the HUD toggle into the metrics flag on ConfigChanged
+		if (!metrics.isEnabled()) {
+			return null;
+		}
+		rollWindow(System.currentTimeMillis());
+
+		panelComponent.getChildren().add(TitleComponent.builder().text("PerryVentory").build());
+		line("Render p50/p99", micros(renderP50) + " / " + micros(renderP99));
+		line("Diff p50/p99", micros(diffP50) + " / " + micros(diffP99));
+		line("Events run/skip", plugin.getInventoryEventsProcessed() + " / " + plugin.getInventoryEventsSkipped());
+		line("Saves/min", String.format("%.1f (%s)", savesPerMinute, bytes((long) bytesPerMinute)));
+		line("Journal/min", String.format("%.1f (%s)", journalWritesPerMinute, bytes((long) journalBytesPerMinute)));
+		line("Sprite hits", hitRate(spriteCache.getHits(), spriteCache.getMisses()));
+		line("Geometry hits", hitRate(metrics.getGeometryHits(), metrics.getGeometryMisses()));
+		line("Shadow heap", bytes(plugin.getShadowStateBytes()));
+		return super.render(graphics);
+	}
+
+	private void rollWindow(long now) {
+		if (windowStart == 0) {
+			startWindow(now);
+			return;
+		}
+		long elapsed = now - windowStart;
+		if (elapsed < WINDOW_MILLIS) {
+			return;
+		}
+		Arrays.fill(renderCounts, 0);
+		Arrays.fill(diffCounts, 0);
+		metrics.getRenderNanos().drainTo(renderCounts);
+		metrics.getDiffNanos().drainTo(diffCounts);
+		renderP50 = PerryMetrics.Histogram.percentile(renderCounts, 0.5);
+		renderP99 = PerryMetrics.Histogram.percentile(renderCounts, 0.99);
+		diffP50 = PerryMetrics.Histogram.percentile(diffCounts, 0.5);
+		diffP99 = PerryMetrics.Histogram.percentile(diffCounts, 0.99);
+		long journalWrites = metrics.getJournalWrites() - windowJournalWrites;
+		long journalBytes = metrics.getJournalBytes() - windowJournalBytes;
+		journalWritesPerMinute = journalWrites * 60000.0 / elapsed;
+		journalBytesPerMinute = journalBytes * 60000.0 / elapsed;
+		savesPerMinute = (metrics.getSaves() - windowSaves + journalWrites) * 60000.0 / elapsed;
+		bytesPerMinute = (metrics.getSavedBytes() - windowBytes + journalBytes) * 60000.0 / elapsed;
+		startWindow(now);
+	}
+
+	private void startWindow(long now) {
+		windowStart = now;
+		windowSaves = metrics.getSaves();
+		windowBytes = metrics.getSavedBytes();
+		windowJournalWrites = metrics.getJournalWrites();
+		windowJournalBytes = metrics.getJournalBytes();
+	}
+
+	private void line(String left, String right) {
+		panelComponent.getChildren().add(LineComponent.builder().left(left).right(right).build());
+	}
+
+	private static String micros(long nanos) {
+		return nanos < 0 ? "-" : String.format("%.1fus", nanos / 1000.0);
+	}
+
+	private static String hitRate(long hits, long misses) {
+		long total = hits + misses;
+		return total == 0 ? "-" : String.format("%.1f%%", hits * 100.0 / total);
+	}
+
+	private static String bytes(long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B";
+		}
+		return bytes < 1024 * 1024 ? String.format("%.1f KB", bytes / 1024.0) : String.format("%.1f MB", bytes / (1024.0 * 1024));
+	}
+}
@@ -0,0 +1,60 @@
+package com.Perry;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Guards the plugin's Java Flight Recorder events. The client may run on a trimmed runtime
+ * without the jdk.jfr module, so event classes are only touched when it is present.
+ * <p>
+ * Hot paths check the per-type flags below before constructing an event, so nothing is
+ * allocated unless a recording actually wants it. The flags are refreshed whenever a recording
+ * changes state; a setting changed on an already running recording applies from the next one.
+ */
+@Slf4j
+final class PerryJfr {
+
+	static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+	static volatile boolean overlayRender;
+	static volatile boolean inventoryDiff;
+	static volatile boolean shadowLoad;
+	static volatile boolean shadowSave;
+
+	static {
+		if (AVAILABLE) {
+			Listener.install();
+		}
+	}
+
+	private PerryJfr() {
+	}
+
+	// Only loaded when jdk.jfr is present
+	private static final class Listener implements FlightRecorderListener {
+
+		static void install() {
+			try {
+				FlightRecorder.addListener(new Listener());
+				refresh();
+			} catch (RuntimeException | Error e) {
+				log.debug("Flight Recorder unavailable; plugin events disabled.", e);
+			}
+		}
+
+		@Override
+		public void recordingStateChanged(Recording recording) {
+			refresh();
+		}
+
+		private static void refresh() {
+			overlayRender = EventType.getEventType(OverlayRenderEvent.class).isEnabled();
+			inventoryDiff = EventType.getEventType(InventoryDiffEvent.class).isEnabled();
+			shadowLoad = EventType.getEventType(ShadowLoadEvent.class).isEnabled();
+			shadowSave = EventType.getEventType(ShadowSaveEvent.class).isEnabled();
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.Perry;
+
+import com.google.inject.Singleton;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free runtime metrics for the performance HUD.
+ * <p>
+ * Counters are {@link LongAdder}s and timings go into fixed-bucket {@link Histogram}s, so the
+ * client, render and executor threads record without contending. Every recording method checks
+ * one volatile flag first; with the HUD off a timed section costs that read and nothing else.
+ */
+@Singleton
+public class PerryMetrics {
+
+	private volatile boolean enabled;
+
+	private final Histogram renderNanos = new Histogram();
+	private final Histogram diffNanos = new Histogram();
+	private final LongAdder saves = new LongAdder();
+	private final LongAdder savedBytes = new LongAdder();
+	private final LongAdder journalWrites = new LongAdder();
+	private final LongAdder journalBytes = new LongAdder();
+	private final LongAdder geometryHits = new LongAdder();
+	private final LongAdder geometryMisses = new LongAdder();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/** Start time for a timed section, or 0 when disabled; pass it to the matching record method. */
+	public long startTimer() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	public void recordRender(long start) {
+		if (start != 0) {
+			renderNanos.record(System.nanoTime() - start);
+		}
+	}
+
+	public void recordDiff(long start) {
+		if (start != 0) {
+			diffNanos.record(System.nanoTime() - start);
+		}
+	}
+
+	public void recordSave(int bytes) {
+		if (enabled) {
+			saves.increment();
+			savedBytes.add(bytes);
+		}
+	}
+
+	/** A journal append or compaction; counted separately from the full saves in config. */
+	public void recordJournalWrite(int bytes) {
+		if (enabled) {
+			journalWrites.increment();
+			journalBytes.add(bytes);
+		}
+	}
+
+	public void recordGeometryLookup(boolean hit) {
+		if (enabled) {
+			(hit ? geometryHits : geometryMisses).increment();
+		}
+	}
+
+	public Histogram getRenderNanos() {
+		return renderNanos;
+	}
+
+	public Histogram getDiffNanos() {
+		return diffNanos;
+	}
+
+	public long getSaves() {
+		return saves.sum();
+	}
+
+	public long getSavedBytes() {
+		return savedBytes.sum();
+	}
+
+	public long getJournalWrites() {
+		return journalWrites.sum();
+	}
+
+	public long getJournalBytes() {
+		return journalBytes.sum();
+	}
+
+	public long getGeometryHits() {
+		return geometryHits.sum();
+	}
+
+	public long getGeometryMisses() {
+		return geometryMisses.sum();
+	}
+
+	/**
+	 * Log-linear histogram of non-negative longs: 8 sub-buckets per power of two, so any value
+	 * is placed within 12.5% of its true size. Values above 2^40 share the last bucket.
+	 */
+	public static final class Histogram {
+
+		private static final int SUB_BUCKET_BITS = 3;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		private static final int MAX_EXPONENT = 40;
+		static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+		private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+		Histogram() {
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		public void record(long value) {
+			buckets[bucketOf(value)].increment();
+		}
+
+		/**
+		 * Adds the counts recorded since the last drain to {@code counts} (length {@link #BUCKETS})
+		 * and resets them. Recordings racing the drain land in this window or the next.
+		 */
+		public void drainTo(long[] counts) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] += buckets[i].sumThenReset();
+			}
+		}
+
+		static int bucketOf(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) Math.max(value, 0);
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			if (exponent > MAX_EXPONENT) {
+				return BUCKETS - 1;
+			}
+			int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+		}
+
+		/** Smallest value that falls into the bucket. */
+		static long lowerBound(int bucket) {
+			if (bucket < SUB_BUCKETS) {
+				return bucket;
+			}
+			int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			long sub = bucket % SUB_BUCKETS;
+			return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+		}
+
+		/** Approximate {@code quantile} (0-1) of drained counts, or -1 if they are empty. */
+		public static long percentile(long[] counts, double quantile) {
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			if (total == 0) {
+				return -1;
+			}
+			long rank = (long) Math.ceil(quantile * total);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= Math.max(rank, 1)) {
+					return lowerBound(i);
+				}
+			}
+			return lowerBound(counts.length - 1);
+		}
+	}
+}
@@ -20,6 +20,16 @@ public interface PerryVentoryConfig extends Config {
 		return new Color(0, 0, 0, 128); // Default semi-transparent black
 	}
 
+	@ConfigItem(
+			keyName = "shadowStyle",
+			name = "Shadow Style",
+			description = "Faded shows the item at the shadow opacity; Tinted blends it toward the shadow color; Greyscale and Outline are self-explanatory.",
+			position = 2
+	)
+	default ShadowStyle shadowStyle() {
+		return ShadowStyle.FADED;
+	}
+
 	// --- Input Field to Clear Specific Slot ---
 	@ConfigItem(
 			keyName = "clearSlotNumberInput",
@@ -32,6 +42,27 @@ public interface PerryVentoryConfig extends Config {
 	}
 
 
+	@ConfigItem(
+			keyName = "layoutPerWorldType",
+			name = "Separate Layouts Per World Type",
+			description = "Keep separate automatic shadows on members, free-to-play and PvP worlds. Layouts are always kept per account.",
+			position = 7
+	)
+	default boolean layoutPerWorldType() {
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "relocationPolicy",
+			name = "Covered Shadow Placement",
+			description = "Where an automatic shadow moves when a real item lands on its slot: the nearest free slot, the nearest free slot in the same column, or nowhere (the shadow is removed).",
+			position = 8
+	)
+	default RelocationPolicy relocationPolicy() {
+		return RelocationPolicy.NEAREST;
+	}
+
+
 	// --- Section for Manual Shadow Configuration (Item IDs) ---
 	@ConfigSection(
 			name = "Manual Shadow Configuration (Item IDs)",
@@ -41,93 +72,202 @@ public interface PerryVentoryConfig extends Config {
 	)
 	String manualSlotsSection = "manualSlotsSection";
 
+	@ConfigItem(
+			keyName = ManualShadowConfig.LAYOUT_KEY,
+			name = "Manual Layout (Packed)",
+			description = "A whole manual layout in one field as slot:itemId pairs, slots 1-28, e.g. 1:12934, 2:12934, 28:8013. Entries from the per-slot fields below are moved into it.",
+			position = 10,
+			section = manualSlotsSection
+	)
+	default String manualLayout() {
+		return "";
+	}
+
 	// --- Config Items for Manual Slots (Expecting Item IDs) ---
 	// Slots 1-28 (Key names slot0Item to slot27Item)
 
-	@ConfigItem(keyName = "slot0Item", name = "Slot 1 Manual Item ID", description = "Manually set a shadow item ID for slot 1. Enter the numeric Item ID.", position = 11, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot0Item", name = "Slot 1 Manual Item ID", description = "Manually set a shadow item ID for slot 1. Enter the numeric Item ID; it is moved into the packed layout.", position = 11, section = manualSlotsSection)
 	default String slot0Item() { return ""; }
 
-	@ConfigItem(keyName = "slot1Item", name = "Slot 2 Manual Item ID", description = "Manually set a shadow item ID for slot 2. Enter the numeric Item ID.", position = 12, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot1Item", name = "Slot 2 Manual Item ID", description = "Manually set a shadow item ID for slot 2. Enter the numeric Item ID; it is moved into the packed layout.", position = 12, section = manualSlotsSection)
 	default String slot1Item() { return ""; }
 
-	@ConfigItem(keyName = "slot2Item", name = "Slot 3 Manual Item ID", description = "Manually set a shadow item ID for slot 3. Enter the numeric Item ID.", position = 13, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot2Item", name = "Slot 3 Manual Item ID", description = "Manually set a shadow item ID for slot 3. Enter the numeric Item ID; it is moved into the packed layout.", position = 13, section = manualSlotsSection)
 	default String slot2Item() { return ""; }
 
-	@ConfigItem(keyName = "slot3Item", name = "Slot 4 Manual Item ID", description = "Manually set a shadow item ID for slot 4. Enter the numeric Item ID.", position = 14, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot3Item", name = "Slot 4 Manual Item ID", description = "Manually set a shadow item ID for slot 4. Enter the numeric Item ID; it is moved into the packed layout.", position = 14, section = manualSlotsSection)
 	default String slot3Item() { return ""; }
 
-	@ConfigItem(keyName = "slot4Item", name = "Slot 5 Manual Item ID", description = "Manually set a shadow item ID for slot 5. Enter the numeric Item ID.", position = 15, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot4Item", name = "Slot 5 Manual Item ID", description = "Manually set a shadow item ID for slot 5. Enter the numeric Item ID; it is moved into the packed layout.", position = 15, section = manualSlotsSection)
 	default String slot4Item() { return ""; }
 
-	@ConfigItem(keyName = "slot5Item", name = "Slot 6 Manual Item ID", description = "Manually set a shadow item ID for slot 6. Enter the numeric Item ID.", position = 16, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot5Item", name = "Slot 6 Manual Item ID", description = "Manually set a shadow item ID for slot 6. Enter the numeric Item ID; it is moved into the packed layout.", position = 16, section = manualSlotsSection)
 	default String slot5Item() { return ""; }
 
-	@ConfigItem(keyName = "slot6Item", name = "Slot 7 Manual Item ID", description = "Manually set a shadow item ID for slot 7. Enter the numeric Item ID.", position = 17, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot6Item", name = "Slot 7 Manual Item ID", description = "Manually set a shadow item ID for slot 7. Enter the numeric Item ID; it is moved into the packed layout.", position = 17, section = manualSlotsSection)
 	default String slot6Item() { return ""; }
 
-	@ConfigItem(keyName = "slot7Item", name = "Slot 8 Manual Item ID", description = "Manually set a shadow item ID for slot 8. Enter the numeric Item ID.", position = 18, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot7Item", name = "Slot 8 Manual Item ID", description = "Manually set a shadow item ID for slot 8. Enter the numeric Item ID; it is moved into the packed layout.", position = 18, section = manualSlotsSection)
 	default String slot7Item() { return ""; }
 
-	@ConfigItem(keyName = "slot8Item", name = "Slot 9 Manual Item ID", description = "Manually set a shadow item ID for slot 9. Enter the numeric Item ID.", position = 19, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot8Item", name = "Slot 9 Manual Item ID", description = "Manually set a shadow item ID for slot 9. Enter the numeric Item ID; it is moved into the packed layout.", position = 19, section = manualSlotsSection)
 	default String slot8Item() { return ""; }
 
-	@ConfigItem(keyName = "slot9Item", name = "Slot 10 Manual Item ID", description = "Manually set a shadow item ID for slot 10. Enter the numeric Item ID.", position = 20, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot9Item", name = "Slot 10 Manual Item ID", description = "Manually set a shadow item ID for slot 10. Enter the numeric Item ID; it is moved into the packed layout.", position = 20, section = manualSlotsSection)
 	default String slot9Item() { return ""; }
 
-	@ConfigItem(keyName = "slot10Item", name = "Slot 11 Manual Item ID", description = "Manually set a shadow item ID for slot 11. Enter the numeric Item ID.", position = 21, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot10Item", name = "Slot 11 Manual Item ID", description = "Manually set a shadow item ID for slot 11. Enter the numeric Item ID; it is moved into the packed layout.", position = 21, section = manualSlotsSection)
 	default String slot10Item() { return ""; }
 
-	@ConfigItem(keyName = "slot11Item", name = "Slot 12 Manual Item ID", description = "Manually set a shadow item ID for slot 12. Enter the numeric Item ID.", position = 22, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot11Item", name = "Slot 12 Manual Item ID", description = "Manually set a shadow item ID for slot 12. Enter the numeric Item ID; it is moved into the packed layout.", position = 22, section = manualSlotsSection)
 	default String slot11Item() { return ""; }
 
-	@ConfigItem(keyName = "slot12Item", name = "Slot 13 Manual Item ID", description = "Manually set a shadow item ID for slot 13. Enter the numeric Item ID.", position = 23, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot12Item", name = "Slot 13 Manual Item ID", description = "Manually set a shadow item ID for slot 13. Enter the numeric Item ID; it is moved into the packed layout.", position = 23, section = manualSlotsSection)
 	default String slot12Item() { return ""; }
 
-	@ConfigItem(keyName = "slot13Item", name = "Slot 14 Manual Item ID", description = "Manually set a shadow item ID for slot 14. Enter the numeric Item ID.", position = 24, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot13Item", name = "Slot 14 Manual Item ID", description = "Manually set a shadow item ID for slot 14. Enter the numeric Item ID; it is moved into the packed layout.", position = 24, section = manualSlotsSection)
 	default String slot13Item() { return ""; }
 
-	@ConfigItem(keyName = "slot14Item", name = "Slot 15 Manual Item ID", description = "Manually set a shadow item ID for slot 15. Enter the numeric Item ID.", position = 25, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot14Item", name = "Slot 15 Manual Item ID", description = "Manually set a shadow item ID for slot 15. Enter the numeric Item ID; it is moved into the packed layout.", position = 25, section = manualSlotsSection)
 	default String slot14Item() { return ""; }
 
-	@ConfigItem(keyName = "slot15Item", name = "Slot 16 Manual Item ID", description = "Manually set a shadow item ID for slot 16. Enter the numeric Item ID.", position = 26, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot15Item", name = "Slot 16 Manual Item ID", description = "Manually set a shadow item ID for slot 16. Enter the numeric Item ID; it is moved into the packed layout.", position = 26, section = manualSlotsSection)
 	default String slot15Item() { return ""; }
 
-	@ConfigItem(keyName = "slot16Item", name = "Slot 17 Manual Item ID", description = "Manually set a shadow item ID for slot 17. Enter the numeric Item ID.", position = 27, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot16Item", name = "Slot 17 Manual Item ID", description = "Manually set a shadow item ID for slot 17. Enter the numeric Item ID; it is moved into the packed layout.", position = 27, section = manualSlotsSection)
 	default String slot16Item() { return ""; }
 
-	@ConfigItem(keyName = "slot17Item", name = "Slot 18 Manual Item ID", description = "Manually set a shadow item ID for slot 18. Enter the numeric Item ID.", position = 28, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot17Item", name = "Slot 18 Manual Item ID", description = "Manually set a shadow item ID for slot 18. Enter the numeric Item ID; it is moved into the packed layout.", position = 28, section = manualSlotsSection)
 	default String slot17Item() { return ""; }
 
-	@ConfigItem(keyName = "slot18Item", name = "Slot 19 Manual Item ID", description = "Manually set a shadow item ID for slot 19. Enter the numeric Item ID.", position = 29, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot18Item", name = "Slot 19 Manual Item ID", description = "Manually set a shadow item ID for slot 19. Enter the numeric Item ID; it is moved into the packed layout.", position = 29, section = manualSlotsSection)
 	default String slot18Item() { return ""; }
 
-	@ConfigItem(keyName = "slot19Item", name = "Slot 20 Manual Item ID", description = "Manually set a shadow item ID for slot 20. Enter the numeric Item ID.", position = 30, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot19Item", name = "Slot 20 Manual Item ID", description = "Manually set a shadow item ID for slot 20. Enter the numeric Item ID; it is moved into the packed layout.", position = 30, section = manualSlotsSection)
 	default String slot19Item() { return ""; }
 
-	@ConfigItem(keyName = "slot20Item", name = "Slot 21 Manual Item ID", description = "Manually set a shadow item ID for slot 21. Enter the numeric Item ID.", position = 31, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot20Item", name = "Slot 21 Manual Item ID", description = "Manually set a shadow item ID for slot 21. Enter the numeric Item ID; it is moved into the packed layout.", position = 31, section = manualSlotsSection)
 	default String slot20Item() { return ""; }
 
-	@ConfigItem(keyName = "slot21Item", name = "Slot 22 Manual Item ID", description = "Manually set a shadow item ID for slot 22. Enter the numeric Item ID.", position = 32, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot21Item", name = "Slot 22 Manual Item ID", description = "Manually set a shadow item ID for slot 22. Enter the numeric Item ID; it is moved into the packed layout.", position = 32, section = manualSlotsSection)
 	default String slot21Item() { return ""; }
 
-	@ConfigItem(keyName = "slot22Item", name = "Slot 23 Manual Item ID", description = "Manually set a shadow item ID for slot 23. Enter the numeric Item ID.", position = 33, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot22Item", name = "Slot 23 Manual Item ID", description = "Manually set a shadow item ID for slot 23. Enter the numeric Item ID; it is moved into the packed layout.", position = 33, section = manualSlotsSection)
 	default String slot22Item() { return ""; }
 
-	@ConfigItem(keyName = "slot23Item", name = "Slot 24 Manual Item ID", description = "Manually set a shadow item ID for slot 24. Enter the numeric Item ID.", position = 34, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot23Item", name = "Slot 24 Manual Item ID", description = "Manually set a shadow item ID for slot 24. Enter the numeric Item ID; it is moved into the packed layout.", position = 34, section = manualSlotsSection)
 	default String slot23Item() { return ""; }
 
-	@ConfigItem(keyName = "slot24Item", name = "Slot 25 Manual Item ID", description = "Manually set a shadow item ID for slot 25. Enter the numeric Item ID.", position = 35, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot24Item", name = "Slot 25 Manual Item ID", description = "Manually set a shadow item ID for slot 25. Enter the numeric Item ID; it is moved into the packed layout.", position = 35, section = manualSlotsSection)
 	default String slot24Item() { return ""; }
 
-	@ConfigItem(keyName = "slot25Item", name = "Slot 26 Manual Item ID", description = "Manually set a shadow item ID for slot 26. Enter the numeric Item ID.", position = 36, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot25Item", name = "Slot 26 Manual Item ID", description = "Manually set a shadow item ID for slot 26. Enter the numeric Item ID; it is moved into the packed layout.", position = 36, section = manualSlotsSection)
 	default String slot25Item() { return ""; }
 
-	@ConfigItem(keyName = "slot26Item", name = "Slot 27 Manual Item ID", description = "Manually set a shadow item ID for slot 27. Enter the numeric Item ID.", position = 37, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot26Item", name = "Slot 27 Manual Item ID", description = "Manually set a shadow item ID for slot 27. Enter the numeric Item ID; it is moved into the packed layout.", position = 37, section = manualSlotsSection)
 	default String slot26Item() { return ""; }
 
-	@ConfigItem(keyName = "slot27Item", name = "Slot 28 Manual Item ID", description = "Manually set a shadow item ID for slot 28. Enter the numeric Item ID.", position = 38, section = manualSlotsSection)
+	@ConfigItem(keyName = "slot27Item", name = "Slot 28 Manual Item ID", description = "Manually set a shadow item ID for slot 28. Enter the numeric Item ID; it is moved into the packed layout.", position = 38, section = manualSlotsSection)
 	default String slot27Item() { return ""; }
 
+	// --- Section for Layout Presets ---
+	@ConfigSection(
+			name = "Layout Presets",
+			description = "Named automatic shadow layouts, e.g. one per boss or skill.",
+			position = 40,
+			closedByDefault = true
+	)
+	String presetsSection = "presetsSection";
+
+	@ConfigItem(
+			keyName = "layoutPresets",
+			name = "Preset Names",
+			description = "Comma-separated preset names, e.g. Zulrah, Barrows, Skilling. Each keeps its own automatic shadows; the Default layout is always available.",
+			position = 41,
+			section = presetsSection
+	)
+	default String layoutPresets() {
+		return "";
+	}
+
+	@ConfigItem(
+			keyName = "nextPresetHotkey",
+			name = "Next Preset Hotkey",
+			description = "Switches to the next layout preset. Right-clicking an inventory slot offers the same.",
+			position = 42,
+			section = presetsSection
+	)
+	default Keybind nextPresetHotkey() {
+		return Keybind.NOT_SET;
+	}
+
+	// --- Section for Other Containers ---
+	@ConfigSection(
+			name = "Other Containers",
+			description = "Track automatic shadows for containers besides the inventory. State is kept and saved per container and drawn on its interface.",
+			position = 50,
+			closedByDefault = true
+	)
+	String containersSection = "containersSection";
+
+	@ConfigItem(keyName = "trackBank", name = "Track Bank", description = "Keep automatic shadows for bank slots: a withdrawn item's shadow is drawn small in front of the item that took its place, and follows it as the bank shifts.", position = 51, section = containersSection)
+	default boolean trackBank() { return false; }
+
+	// --- Section for Performance Tuning ---
+	@ConfigSection(
+			name = "Performance",
+			description = "Tuning for how often shadow state is written and processed.",
+			position = 60,
+			closedByDefault = true
+	)
+	String performanceSection = "performanceSection";
+
+	@Range(max = 60000)
+	@Units(Units.MILLISECONDS)
+	@ConfigItem(
+			keyName = "saveCoalesceWindow",
+			name = "Save Coalescing Window",
+			description = "Automatic shadow changes made within this window are written together in one save.",
+			position = 61,
+			section = performanceSection
+	)
+	default int saveCoalesceWindow() {
+		return 2000;
+	}
+
+	@ConfigItem(
+			keyName = "inventoryProcessing",
+			name = "Process Changes",
+			description = "Every change diffs each inventory update on its own. The batched modes fold all updates within a frame or game tick into one diff against the latest inventory.",
+			position = 62,
+			section = performanceSection
+	)
+	default InventoryProcessingMode inventoryProcessing() {
+		return InventoryProcessingMode.PER_EVENT;
+	}
+
+	@ConfigItem(
+			keyName = "recordInventoryTrace",
+			name = "Record Inventory Trace",
+			description = "Writes every inventory change to .runelite/perryventory/traces for offline replay. Leave off unless profiling.",
+			position = 63,
+			section = performanceSection
+	)
+	default boolean recordInventoryTrace() {
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "showPerformanceHud",
+			name = "Show Performance HUD",
+			description = "Shows the plugin's own render and diff times, save rate, cache hit rates and memory use. Metrics are only collected while this is on.",
+			position = 64,
+			section = performanceSection
+	)
+	default boolean showPerformanceHud() {
+		return false;
+	}
+
 	/* --- Optional toggles --- */
      /*
     @ConfigItem(keyName = "relocationEnabled", name = "Enable Automatic Shadow Relocation", description = "If enabled, AUTOMATIC shadows try to move when overwritten.", position = 50 )
@@ -1,7 +1,5 @@
 package com.Perry;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import com.google.inject.Provides;
 import lombok.Getter;
@@ -11,6 +9,7 @@ import net.runelite.api.events.*;
 import net.runelite.api.gameval.InterfaceID;
 import net.runelite.api.widgets.WidgetInfo;
 import net.runelite.api.widgets.WidgetUtil;
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.chat.ChatColorType;
 import net.runelite.client.chat.ChatMessageBuilder;
@@ -18,15 +17,18 @@ import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.EventBus;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ConfigChanged;
-import net.runelite.client.game.ItemManager;
+import net.runelite.client.events.RuneScapeProfileChanged;
+import net.runelite.client.input.KeyManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.overlay.OverlayManager;
+import net.runelite.client.util.HotkeyListener;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Supplier;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 @Slf4j
@@ -39,11 +41,15 @@ public class PerryVentoryPlugin extends Plugin {
 
 	// --- Constants ---
 	public static final String CONFIG_GROUP = "perryventory";
-	private static final String SHADOW_DATA_KEY = "reservedSlotsData";
-	private static final int COINS = ItemID.COINS_995;
-	private static final Type SHADOW_MAP_TYPE = new TypeToken<Map<Integer, Integer>>() {}.getType();
+	static final int INVENTORY_SIZE = 28;
+	static final int INVENTORY_COLUMNS = 4;
 	private static final String CLEAR_SHADOW_OPTION = "Clear PerryVentory Shadow";
 	private static final String TARGET_OPTION = "Cancel";
+	private static final String NEXT_PRESET_OPTION = "Next PerryVentory Layout";
+	private static final String UNDO_OPTION = "Undo PerryVentory Shadows";
+	private static final String REDO_OPTION = "Redo PerryVentory Shadows";
+	private static final String ACTIVE_PRESET_KEY = "activePreset";
+	private static final String CLEAR_SLOT_INPUT_KEY = "clearSlotNumberInput";
 	// Removed CLEAR_CMD constant
 
 	// --- Injections ---
@@ -52,20 +58,104 @@ public class PerryVentoryPlugin extends Plugin {
 	@Inject private EventBus eventBus;
 	@Inject private OverlayManager overlayManager;
 	@Inject private ReservedSlotOverlay overlay;
+	@Inject private BankShadowOverlay bankOverlay;
 	@Inject private PerryVentoryConfig config;
 	@Inject private ConfigManager configManager;
-	@Inject private ItemManager itemManager;
-	@Inject private Gson gson;
+	@Inject private CanonicalItemResolver canonicalItemResolver;
+	@Inject private ShadowSpriteCache spriteCache;
+	@Inject private InventorySlotGeometry slotGeometry;
+	@Inject private ShadowPersistence shadowPersistence;
+	@Inject private KeyManager keyManager;
+	@Inject private ScheduledExecutorService executor;
+	@Inject private ConfigTransactions configTransactions;
+	@Inject private PerryMetrics metrics;
+	@Inject private PerformanceHudOverlay hudOverlay;
 	// Removed ChatCommandManager injection
 
 	// --- Fields ---
+	private final ShadowEngine engine = new ShadowEngine(INVENTORY_SIZE, INVENTORY_COLUMNS, id -> canonicalItemResolver.resolve(id));
 	@Getter
-	private final Map<Integer, Integer> reservedSlots = new ConcurrentHashMap<>();
+	private final SlotTable reservedSlots = engine.getShadows();
 	@Getter
-	private final Map<Integer, Integer> manualShadows = new ConcurrentHashMap<>();
-	private final Map<Integer, Integer> previousInventoryState = new HashMap<>();
-	private volatile boolean needsToLoadConfig = false;
+	private final SlotTable manualShadows = engine.getManual();
+	// Background load of the automatic shadows; bumping the generation discards one still in flight
+	private int loadGeneration;
+	private boolean loadPending;
 
+	// Change journal of the active layout, null until it is loaded or if the journal can't be opened
+	private ShadowJournal journal;
+
+	// Manual shadows as stored in the packed layout key, which per-slot edits are folded into;
+	// manualLayoutValue mirrors the key so edits can be staged without reading it back
+	private final SlotTable manualPacked = new SlotTable(INVENTORY_SIZE);
+	private String manualLayoutValue;
+
+	// Scratch buffer reused by processInventoryChange so the hot path doesn't allocate
+	private final int[] rawItemIds = new int[INVENTORY_SIZE];
+	private InventoryTrace.Recorder traceRecorder;
+
+	// Batched processing: container updates only mark the inventory dirty until the next frame/tick
+	private volatile InventoryProcessingMode processingMode = InventoryProcessingMode.PER_EVENT;
+	private boolean inventoryDirty;
+	private int pendingInventoryEvents;
+
+	// Engines for the other tracked containers (the bank), created on first sight; indexed by TrackedContainer ordinal
+	private final AtomicReferenceArray<ShadowEngine> containerEngines = new AtomicReferenceArray<>(TrackedContainer.values().length);
+	private final boolean[] containerTracked = new boolean[TrackedContainer.values().length];
+	private int[] containerRawIds = new int[0];
+
+	// Persistence scope currently loaded: RS profile key and world-type suffix
+	private String activeProfile;
+	private String activeKeySuffix = "";
+
+	// Layout presets; the active one decides which data key holds the automatic inventory shadows
+	private List<String> presets = Collections.emptyList();
+	@Getter
+	private String activePreset = LayoutPresets.DEFAULT_NAME;
+	private String inventoryDataKey = TrackedContainer.INVENTORY.getDataKey();
+
+	private final HotkeyListener nextPresetHotkeyListener = new HotkeyListener(() -> config.nextPresetHotkey()) {
+		@Override
+		public void hotkeyPressed() {
+			clientThread.invokeLater(PerryVentoryPlugin.this::cyclePreset);
+		}
+	};
+
+
+	/** Resolved shadows for the overlay; safe to read off the client thread. */
+	public ShadowSnapshot getShadowSnapshot() {
+		return engine.getSnapshot();
+	}
+
+	/**
+	 * True if the item has a manual or automatic inventory shadow anywhere. Automatic shadows hold
+	 * canonical IDs, so pass the canonical ID for those. O(1) and safe from any thread.
+	 */
+	public boolean isShadowed(int itemId) {
+		return engine.getSnapshot().isShadowed(itemId);
+	}
+
+	/** Inventory layout changes diffed since startup; read by the performance HUD. */
+	public long getInventoryEventsProcessed() {
+		return engine.getEventsProcessed();
+	}
+
+	/** Inventory updates skipped as layout-unchanged since startup. */
+	public long getInventoryEventsSkipped() {
+		return engine.getEventsSkipped();
+	}
+
+	/** Approximate heap held by shadow state: engines, snapshots, decoded profiles and sprites. */
+	public long getShadowStateBytes() {
+		long bytes = engine.retainedBytes() + shadowPersistence.decodedBytes() + spriteCache.getBytes();
+		for (int i = 0; i < containerEngines.length(); i++) {
+			ShadowEngine containerEngine = containerEngines.get(i);
+			if (containerEngine != null) {
+				bytes += containerEngine.retainedBytes();
+			}
+		}
+		return bytes;
+	}
 
 	// --- Config Provider ---
 	@Provides
@@ -77,22 +167,38 @@ public class PerryVentoryPlugin extends Plugin {
 	@Override
 	protected void startUp() throws Exception {
 		log.info("Starting PerryVentory Plugin...");
-		if (gson == null) { gson = new Gson(); }
-		previousInventoryState.clear();
+		engine.reset();
 		reservedSlots.clear();
 		manualShadows.clear();
-		needsToLoadConfig = false;
+		engine.publish();
+		loadGeneration++;
+		loadPending = false;
+		inventoryDirty = false;
+		pendingInventoryEvents = 0;
+		processingMode = config.inventoryProcessing();
+		metrics.setEnabled(config.showPerformanceHud());
+		shadowPersistence.setSaveWindow(config.saveCoalesceWindow());
+		engine.setRelocationPolicy(config.relocationPolicy());
+		updateTrackedContainers();
+
+		presets = LayoutPresets.parse(config.layoutPresets());
+		selectPreset(LayoutPresets.DEFAULT_NAME);
 
 		clientThread.invokeLater(() -> {
 			updateManualShadowsFromConfig(); // Load initial manual config state
+			refreshProfileScope(); // Already logged in when the plugin is enabled mid-session
 			// Clear the input field on startup just in case it had a value saved
 			try {
-				configManager.setConfiguration(CONFIG_GROUP, "clearSlotNumberInput", "");
+				configManager.setConfiguration(CONFIG_GROUP, CLEAR_SLOT_INPUT_KEY, "");
 			} catch (Exception e) { log.warn("Could not clear slot input field on startup", e);}
 
-			// Load automatic shadows is triggered later
+			// Automatic shadows load in the background once the RuneScape profile is known
 			eventBus.register(this);
 			overlayManager.add(overlay);
+			overlayManager.add(bankOverlay);
+			overlayManager.add(hudOverlay);
+			keyManager.registerKeyListener(nextPresetHotkeyListener);
+			updateTraceRecorder();
 			log.info("PerryVentory started! Waiting for login and inventory widget load.");
 		});
 	}
@@ -102,15 +208,31 @@ public class PerryVentoryPlugin extends Plugin {
 		log.info("Stopping PerryVentory Plugin...");
 		eventBus.unregister(this);
 		overlayManager.remove(overlay);
+		overlayManager.remove(bankOverlay);
+		overlayManager.remove(hudOverlay);
+		metrics.setEnabled(false);
+		keyManager.unregisterKeyListener(nextPresetHotkeyListener);
 		// Removed command unregistration
-		if (!previousInventoryState.isEmpty() || !reservedSlots.isEmpty()) {
+		stopTraceRecorder();
+		if (engine.isInitialized() || !reservedSlots.isEmpty()) {
 			log.info("Shutting down plugin, saving final automatic shadow state...");
-			saveShadows(); // Save automatic shadows
+			flushShadows(); // Save automatic shadows synchronously
 		}
+		closeJournal();
+		flushContainerShadows(true);
 		reservedSlots.clear();
 		manualShadows.clear();
-		previousInventoryState.clear();
-		needsToLoadConfig = false;
+		manualPacked.clear();
+		manualLayoutValue = null;
+		engine.reset();
+		engine.publish();
+		loadGeneration++;
+		loadPending = false;
+		activeProfile = null;
+		activeKeySuffix = "";
+		selectPreset(LayoutPresets.DEFAULT_NAME);
+		canonicalItemResolver.reset();
+		spriteCache.invalidateAll();
 		log.info("PerryVentory stopped!");
 	}
 
@@ -125,53 +247,75 @@ public class PerryVentoryPlugin extends Plugin {
 		GameState newState = gameStateChanged.getGameState();
 		log.debug("GameState changed to: {}", newState);
 
+		slotGeometry.invalidate();
 		if (newState == GameState.LOGGED_IN) {
 			log.trace("LOGGED_IN state detected.");
+			refreshProfileScope(); // Hopping can change the world type
 		}
 		// Clear previous state map and reset flags on logout/hop
-		else if (previousInventoryState != null && !previousInventoryState.isEmpty() && (
+		else if (engine.isInitialized() && (
 				newState == GameState.LOGIN_SCREEN || newState == GameState.CONNECTION_LOST || newState == GameState.HOPPING)) {
 			log.debug("Player logged out or hopping ({}) Clearing previous state map.", newState);
-			previousInventoryState.clear();
-			if (needsToLoadConfig) { // Reset flag if logout happens before load trigger
-				log.debug("Resetting needsToLoadConfig flag due to game state change.");
-				needsToLoadConfig = false;
-			}
+			flushShadows(); // Don't leave a coalesced write pending across accounts/worlds
+			flushContainerShadows(false);
+			engine.reset();
+			inventoryDirty = false;
+			pendingInventoryEvents = 0;
 		}
 	}
 
 	/**
-	 * Initializes previous inventory state and sets flag to load saved shadows.
+	 * Initializes previous inventory state once the inventory is loaded after login.
 	 */
 	@Subscribe
 	public void onWidgetLoaded(WidgetLoaded widgetLoaded) {
+		slotGeometry.invalidate(); // Any interface load can move the side panel
 		if (widgetLoaded.getGroupId() == WidgetInfo.INVENTORY.getGroupId()) {
 			log.debug("Inventory widget group loaded (ID: {}).", widgetLoaded.getGroupId());
 			if (client.getGameState() == GameState.LOGGED_IN) {
-				if (previousInventoryState.isEmpty()) {
+				if (!engine.isInitialized()) {
 					log.debug("Inventory loaded after login, previous state empty. Queueing state initialization.");
 					clientThread.invokeLater(this::initializeInventoryState);
 				}
-				if (reservedSlots.isEmpty() && !needsToLoadConfig) {
-					needsToLoadConfig = true;
-					log.debug("Inventory loaded after login, reservedSlots empty. Flag set to load config on next tick.");
-				}
 			}
 		}
 	}
 
-	/**
-	 * Loads saved automatic shadow data on the first game tick after the load flag is set.
-	 */
+	// --- Slot Geometry Invalidation ---
+	@Subscribe
+	public void onWidgetClosed(WidgetClosed widgetClosed) {
+		slotGeometry.invalidate();
+	}
+
+	@Subscribe
+	public void onCanvasSizeChanged(CanvasSizeChanged canvasSizeChanged) {
+		slotGeometry.invalidate();
+	}
+
+	@Subscribe
+	public void onResizeableChanged(ResizeableChanged resizeableChanged) {
+		slotGeometry.invalidate();
+	}
+
+	@Subscribe
+	public void onDraggingWidgetChanged(DraggingWidgetChanged draggingWidgetChanged) {
+		slotGeometry.invalidate();
+	}
+
+	/** Diffs batched inventory updates once per tick in GAME_TICK mode. */
 	@Subscribe
 	public void onGameTick(GameTick gameTick) {
-		if (needsToLoadConfig) {
-			needsToLoadConfig = false;
-			log.debug("First GameTick after inventory load flag set. Loading shadows now (synchronously).");
-			try {
-				loadShadows(); // Use standard config method
-				log.debug("POST-LOAD CHECK (after GameTick sync): reservedSlots map contents = {}", reservedSlots);
-			} catch (Exception e) { log.error("Exception occurred during synchronous loadShadows execution in onGameTick", e); }
+		// Also catches anything left dirty when the mode was switched away from a batched one
+		if (inventoryDirty) {
+			processDirtyInventory();
+		}
+	}
+
+	/** Diffs batched inventory updates once per frame in CLIENT_TICK mode. */
+	@Subscribe
+	public void onClientTick(ClientTick clientTick) {
+		if (inventoryDirty && processingMode == InventoryProcessingMode.CLIENT_TICK) {
+			processDirtyInventory();
 		}
 	}
 
@@ -183,101 +327,147 @@ public class PerryVentoryPlugin extends Plugin {
 	@Subscribe
 	public void onConfigChanged(ConfigChanged event) {
 		if (!event.getGroup().equals(CONFIG_GROUP)) { return; }
+		if (configTransactions.isEcho(event)) { return; } // Our own write; its state is already applied
 
 		String key = event.getKey();
 		String newValue = event.getNewValue();
 
-		// Handle manual slot item changes
-		if (key.startsWith("slot") && key.endsWith("Item")) {
-			log.debug("Manual config changed for key: {}, updating manual shadows.", key);
-			clientThread.invokeLater(this::updateManualShadowsFromConfig);
+		// Pre-tinted shadow sprites depend on these
+		if (key.equals("shadowColor") || key.equals("shadowStyle")) {
+			spriteCache.invalidateAll();
+		}
+		else if (key.equals("layoutPerWorldType")) {
+			clientThread.invokeLater(this::refreshProfileScope);
+		}
+		else if (key.equals("layoutPresets")) {
+			clientThread.invokeLater(this::updatePresets);
+		}
+		else if (key.equals("relocationPolicy")) {
+			clientThread.invokeLater(this::updateRelocationPolicy);
+		}
+		else if (key.startsWith("track")) {
+			updateTrackedContainers();
+		}
+		else if (key.equals("inventoryProcessing")) {
+			processingMode = config.inventoryProcessing();
+		}
+		else if (key.equals("recordInventoryTrace")) {
+			updateTraceRecorder();
+		}
+		else if (key.equals("showPerformanceHud")) {
+			metrics.setEnabled(config.showPerformanceHud());
+		}
+		else if (key.equals("saveCoalesceWindow")) {
+			shadowPersistence.setSaveWindow(config.saveCoalesceWindow());
+		}
+		// Handle manual slot item changes; only the slot that changed is re-parsed
+		else if (ManualShadowConfig.slotForKey(key) != -1) {
+			int slot = ManualShadowConfig.slotForKey(key);
+			log.debug("Manual config changed for key: {}, updating slot {}.", key, slot);
+			clientThread.invokeLater(() -> updateManualSlot(slot, newValue));
+		}
+		else if (key.equals(ManualShadowConfig.LAYOUT_KEY)) {
+			clientThread.invokeLater(() -> updateManualLayout(newValue));
 		}
 		// Handle the clear specific slot input change
-		else if (key.equals("clearSlotNumberInput")) {
+		else if (key.equals(CLEAR_SLOT_INPUT_KEY)) {
 			// Check if the new value is a valid number
 			if (newValue != null && !newValue.trim().isEmpty()) {
 				log.debug("clearSlotNumberInput changed to: '{}'", newValue);
-				try {
-					int slotToClear = Integer.parseInt(newValue.trim());
-
-					// Validate slot number
-					if (slotToClear >= 0 && slotToClear < 28) {
-						log.info("Attempting to clear shadows for slot {} via config input.", slotToClear);
-						boolean autoChanged = false;
-						boolean manualExisted = false;
-
-						// Remove from automatic shadows map if present
-						if (reservedSlots.remove(slotToClear) != null) {
-							log.debug("Removed automatic shadow from slot {}", slotToClear);
-							autoChanged = true;
-						}
-						// Remove from manual shadows map if present
-						if (manualShadows.remove(slotToClear) != null) {
-							log.debug("Removed manual shadow from slot {}", slotToClear);
-							manualExisted = true; // Flag that manual existed, even if config clear fails
-							// Also clear the corresponding manual config entry for that slot
-							String manualConfigKey = "slot" + slotToClear + "Item";
-							try {
-								configManager.setConfiguration(CONFIG_GROUP, manualConfigKey, "");
-								log.debug("Cleared manual config for key {}", manualConfigKey);
-							} catch (Exception e) { log.error("Failed to clear manual config for key {}", manualConfigKey, e); }
-						}
-
-						// Save automatic shadows if they were changed
-						if (autoChanged) {
-							saveShadows();
-						}
-
-						// Provide feedback if anything was actually cleared
-						if (autoChanged || manualExisted) {
-							sendChatMessage("PerryVentory shadow cleared from slot " + (slotToClear + 1) + " via config.");
-						} else {
-							sendChatMessage("No PerryVentory shadow found to clear in slot " + (slotToClear + 1) + ".");
-						}
-
-					} else {
-						log.warn("Invalid slot number entered in clearSlotNumberInput: {}. Must be 0-27.", slotToClear);
-						sendChatMessage("Invalid slot number: " + slotToClear + ". Please enter 0-27.");
-					}
-				} catch (NumberFormatException e) {
-					log.warn("Invalid input in clearSlotNumberInput: '{}' is not a number.", newValue);
-					sendChatMessage("Invalid input: '" + newValue + "'. Please enter a number (0-27).");
-				} finally {
-					// Always reset the input field back to empty immediately after processing
-					// Use invokeLater to avoid issues modifying config during event handling
-					clientThread.invokeLater(() -> {
-						try {
-							log.trace("Resetting clearSlotNumberInput config value.");
-							// Use unsetConfiguration for resetting to default (empty string)
-							configManager.unsetConfiguration(CONFIG_GROUP, "clearSlotNumberInput");
-						} catch(Exception e) {
-							log.warn("Failed to reset clearSlotNumberInput state", e);
-						}
-					});
+				clientThread.invokeLater(() -> clearSlotFromInput(newValue));
+			}
+		}
+	}
+
+	/** Clears the slot typed into the config field, then resets the field; all config edits commit together. */
+	private void clearSlotFromInput(String input) {
+		ConfigTransactions.Transaction tx = configTransactions.begin();
+		try {
+			int slotToClear = Integer.parseInt(input.trim());
+
+			// Validate slot number
+			if (slotToClear >= 0 && slotToClear < engine.capacity()) {
+				log.info("Attempting to clear shadows for slot {} via config input.", slotToClear);
+				boolean autoChanged = false;
+				boolean manualExisted = false;
+
+				// Remove from automatic shadows map if present
+				if (reservedSlots.remove(slotToClear) != SlotTable.EMPTY) {
+					log.debug("Removed automatic shadow from slot {}", slotToClear);
+					autoChanged = true;
+				}
+				// Remove from manual shadows and their config entries if present
+				if (clearManualSlot(slotToClear, tx)) {
+					log.debug("Removed manual shadow from slot {}", slotToClear);
+					manualExisted = true; // Flag that manual existed, even if config clear fails
+				}
+
+				engine.publish();
+				// Save automatic shadows if they were changed
+				if (autoChanged) {
+					saveShadows();
+				}
+
+				// Provide feedback if anything was actually cleared
+				if (autoChanged || manualExisted) {
+					sendChatMessage("PerryVentory shadow cleared from slot " + (slotToClear + 1) + " via config.");
+				} else {
+					sendChatMessage("No PerryVentory shadow found to clear in slot " + (slotToClear + 1) + ".");
 				}
+
+			} else {
+				log.warn("Invalid slot number entered in clearSlotNumberInput: {}. Must be 0-{}.", slotToClear, engine.capacity() - 1);
+				sendChatMessage("Invalid slot number: " + slotToClear + ". Please enter 0-" + (engine.capacity() - 1) + ".");
 			}
+		} catch (NumberFormatException e) {
+			log.warn("Invalid input in clearSlotNumberInput: '{}' is not a number.", input);
+			sendChatMessage("Invalid input: '" + input + "'. Please enter a number (0-" + (engine.capacity() - 1) + ").");
+		} finally {
+			// Always reset the input field back to empty after processing, in the same commit
+			tx.unset(CLEAR_SLOT_INPUT_KEY);
+			tx.commit();
 		}
 	}
 
 
-	/** Processes automatic inventory changes if initial state is ready. */
+	/** Processes automatic inventory changes if initial state is ready, either now or batched per frame/tick. */
 	@Subscribe
 	public void onItemContainerChanged(ItemContainerChanged event) {
-		if (event.getContainerId() == InventoryID.INVENTORY.getId()) {
-			if (!previousInventoryState.isEmpty()) {
-				log.trace("Queueing processing for ItemContainerChanged.");
-				clientThread.invokeLater(() -> processInventoryChange(event));
-			} else {
-				log.trace("Skipping ItemContainerChanged processing because previous state is empty.");
+		if (event.getContainerId() != InventoryID.INVENTORY.getId()) {
+			TrackedContainer tracked = TrackedContainer.forContainerId(event.getContainerId());
+			if (tracked != null && containerTracked[tracked.ordinal()]) {
+				ItemContainer container = event.getItemContainer();
+				clientThread.invokeLater(() -> processContainerChange(tracked, container));
 			}
+			return;
+		}
+		if (engine.isInitialized()) {
+			if (processingMode != InventoryProcessingMode.PER_EVENT) {
+				// The engine diffs end states, so one pass against the latest container folds every update
+				inventoryDirty = true;
+				pendingInventoryEvents++;
+				return;
+			}
+			log.trace("Queueing processing for ItemContainerChanged.");
+			ItemContainer container = event.getItemContainer();
+			clientThread.invokeLater(() -> processInventoryChange(container, 1));
+		} else {
+			log.trace("Skipping ItemContainerChanged processing because previous state is empty.");
 		}
 	}
 
+	/** Switches to the new account's shadows. */
+	@Subscribe
+	public void onRuneScapeProfileChanged(RuneScapeProfileChanged event) {
+		clientThread.invokeLater(this::refreshProfileScope);
+	}
+
 	/** Adds a 'Clear PerryVentory Shadow' menu option using onMenuOpened. */
 	@Subscribe
 	public void onMenuOpened(MenuOpened menuOpened) {
 		MenuEntry[] entries = client.getMenuEntries();
 		if (entries.length == 0) return;
+		addBankClearOption(entries);
 
 		int inventorySlotContext = -1;
 		MenuEntry anchorEntry = null;
@@ -295,7 +485,7 @@ public class PerryVentoryPlugin extends Plugin {
 		}
 
 		if (anchorEntry != null && inventorySlotContext != -1 &&
-				(reservedSlots.containsKey(inventorySlotContext) || manualShadows.containsKey(inventorySlotContext))) {
+				engine.getSnapshot().get(inventorySlotContext) != SlotTable.EMPTY) {
 			log.debug("Adding Clear Shadow option for slot {}", inventorySlotContext);
 			client.createMenuEntry(0)
 					.setOption(CLEAR_SHADOW_OPTION)
@@ -304,32 +494,87 @@ public class PerryVentoryPlugin extends Plugin {
 					.setParam0(inventorySlotContext)
 					.setParam1(anchorEntry.getParam1());
 		}
+		if (anchorEntry != null && inventorySlotContext != -1 && canStep(true)) {
+			client.createMenuEntry(0)
+					.setOption(REDO_OPTION)
+					.setTarget("")
+					.setType(MenuAction.RUNELITE)
+					.setParam0(inventorySlotContext)
+					.setParam1(anchorEntry.getParam1());
+		}
+		if (anchorEntry != null && inventorySlotContext != -1 && canStep(false)) {
+			client.createMenuEntry(0)
+					.setOption(UNDO_OPTION)
+					.setTarget("")
+					.setType(MenuAction.RUNELITE)
+					.setParam0(inventorySlotContext)
+					.setParam1(anchorEntry.getParam1());
+		}
+		if (anchorEntry != null && !presets.isEmpty()) {
+			client.createMenuEntry(0)
+					.setOption(NEXT_PRESET_OPTION)
+					.setTarget("<col=ff9040>" + LayoutPresets.next(presets, activePreset) + "</col>")
+					.setType(MenuAction.RUNELITE)
+					.setParam0(inventorySlotContext)
+					.setParam1(anchorEntry.getParam1());
+		}
 	}
 
 
-	/** Handles the click action for the 'Clear PerryVentory Shadow' menu option. */
+	// A bank slot's entries carry the slot in param0; a shadow there is cleared from the bank engine
+	private void addBankClearOption(MenuEntry[] entries) {
+		int bankItems = WidgetInfo.BANK_ITEM_CONTAINER.getId();
+		ShadowSnapshot bankShadows = getContainerSnapshot(TrackedContainer.BANK);
+		if (bankShadows.isEmpty()) {
+			return;
+		}
+		for (MenuEntry entry : entries) {
+			if (entry.getParam1() == bankItems && bankShadows.get(entry.getParam0()) != SlotTable.EMPTY) {
+				client.createMenuEntry(0)
+						.setOption(CLEAR_SHADOW_OPTION)
+						.setTarget(entry.getTarget())
+						.setType(MenuAction.RUNELITE)
+						.setParam0(entry.getParam0())
+						.setParam1(bankItems);
+				return;
+			}
+		}
+	}
+
+	/** Handles the click action for the plugin's inventory and bank menu options. */
 	@Subscribe
 	public void onMenuOptionClicked(MenuOptionClicked event) {
+		if (event.getMenuOption().equals(CLEAR_SHADOW_OPTION) && event.getParam1() == WidgetInfo.BANK_ITEM_CONTAINER.getId()) {
+			clearContainerShadow(TrackedContainer.BANK, event.getParam0());
+			return;
+		}
+		if (event.getMenuOption().equals(NEXT_PRESET_OPTION) && event.getParam1() == WidgetInfo.INVENTORY.getId()) {
+			cyclePreset();
+			return;
+		}
+		if ((event.getMenuOption().equals(UNDO_OPTION) || event.getMenuOption().equals(REDO_OPTION))
+				&& event.getParam1() == WidgetInfo.INVENTORY.getId()) {
+			undoShadows(event.getMenuOption().equals(REDO_OPTION));
+			return;
+		}
 		if (event.getMenuOption().equals(CLEAR_SHADOW_OPTION) && event.getParam1() == WidgetInfo.INVENTORY.getId()) {
 			int slot = event.getParam0();
 			log.debug("Clear shadow option clicked for slot {}", slot);
 
 			boolean autoChanged = false;
-			if (reservedSlots.remove(slot) != null) {
+			if (reservedSlots.remove(slot) != SlotTable.EMPTY) {
 				log.debug("Removed automatic shadow from slot {}", slot);
 				autoChanged = true;
 			}
-			if (manualShadows.remove(slot) != null) {
+			ConfigTransactions.Transaction tx = configTransactions.begin();
+			if (clearManualSlot(slot, tx)) {
 				log.debug("Removed manual shadow from slot {}", slot);
-				String configKey = "slot" + slot + "Item";
-				try {
-					configManager.setConfiguration(CONFIG_GROUP, configKey, "");
-					log.debug("Cleared manual config for key {}", configKey);
-				} catch (Exception e) { log.error("Failed to clear manual config for key {}", configKey, e); }
 			}
+			tx.commit();
 
+			engine.publish();
 			if (autoChanged) {
-				saveShadows(); // Save if automatic state changed
+				saveShadows(); // Journaled, so the clear can be undone
 			}
 			sendChatMessage("PerryVentory shadow cleared from slot " + (slot + 1) + ".");
 		}
@@ -337,245 +582,612 @@ public class PerryVentoryPlugin extends Plugin {
 
 
 	// --- Manual Shadow Configuration Handling ---
+	/**
+	 * Full rebuild at startup. Per-slot keys still holding an item ID are folded into the packed
+	 * layout and unset in one transaction, so from then on the packed key is the only manual state.
+	 */
 	private void updateManualShadowsFromConfig() {
-		manualShadows.clear();
 		log.debug("Updating MANUAL reserved slots from configuration (expecting Item IDs)...");
-		Supplier<String>[] configGetters = new Supplier[]{
-				config::slot0Item, config::slot1Item, config::slot2Item, config::slot3Item,
-				config::slot4Item, config::slot5Item, config::slot6Item, config::slot7Item,
-				config::slot8Item, config::slot9Item, config::slot10Item, config::slot11Item,
-				config::slot12Item, config::slot13Item, config::slot14Item, config::slot15Item,
-				config::slot16Item, config::slot17Item, config::slot18Item, config::slot19Item,
-				config::slot20Item, config::slot21Item, config::slot22Item, config::slot23Item,
-				config::slot24Item, config::slot25Item, config::slot26Item, config::slot27Item
-		};
-		for (int slot = 0; slot < configGetters.length; slot++) {
-			String itemIdString = configGetters[slot].get();
-			if (itemIdString != null && !itemIdString.trim().isEmpty()) {
-				try {
-					int itemId = Integer.parseInt(itemIdString.trim());
-					if (itemId > 0) {
-						manualShadows.put(slot, itemId);
-						log.debug("Manual config: Slot {} -> Parsed Item ID: {}", slot, itemId);
-					} else {
-						log.warn("Ignoring non-positive Item ID '{}' configured for slot {}", itemIdString, slot);
-					}
-				} catch (NumberFormatException e) {
-					log.warn("Invalid manual config for slot {}: '{}' is not a valid number (Item ID). Please enter a numeric ID.", slot, itemIdString);
-				}
+		String packed = config.manualLayout();
+		parseManualLayout(packed);
+		ConfigTransactions.Transaction tx = configTransactions.begin();
+		tx.assume(ManualShadowConfig.LAYOUT_KEY, packed);
+		boolean folded = false;
+		for (int slot = 0; slot < INVENTORY_SIZE; slot++) {
+			String itemIdString = tx.get(ManualShadowConfig.slotKey(slot));
+			if (itemIdString == null || itemIdString.trim().isEmpty()) {
+				continue;
+			}
+			int itemId = ManualShadowConfig.parseItemId(itemIdString);
+			if (itemId == SlotTable.EMPTY) {
+				log.warn("Invalid manual config for slot {}: '{}' is not a valid positive Item ID.", slot, itemIdString);
+				continue;
 			}
+			// The packed layout overrides an older per-slot key
+			if (manualPacked.get(slot) == SlotTable.EMPTY) {
+				manualPacked.put(slot, itemId);
+			}
+			tx.unset(ManualShadowConfig.slotKey(slot));
+			folded = true;
 		}
-		log.debug("Manual reserved slots map updated: {} entries", manualShadows.size());
+		if (folded) {
+			stageManualLayout(tx);
+		}
+		tx.commit();
+		applyManualLayout();
 	}
 
-	// --- Automatic Shadow Logic ---
-	private void processInventoryChange(ItemContainerChanged event) {
-		ItemContainer currentContainer = event.getItemContainer();
-		if (currentContainer == null) { log.warn("processInventoryChange called with null container for event: {}", event); return; }
-		Item[] currentItems = currentContainer.getItems();
-		log.debug("Processing inventory change. Current items: {}", Arrays.toString(currentItems));
-		log.debug("Processing inventory change. Previous state: {}", previousInventoryState);
-
-		boolean stateChanged = false;
-		if (currentItems == null) { log.warn("processInventoryChange called with null items array for event: {}", event); return; }
-		int inventorySize = currentContainer.size();
-
-		// Phase 1: Analyze Changes
-		Map<Integer, Integer> removedItems = new HashMap<>();
-		Map<Integer, Integer> addedItems = new HashMap<>();
-		Set<Integer> movedItemIds = new HashSet<>();
-		for (int slot = 0; slot < inventorySize; slot++) {
-			int previousItemId = previousInventoryState.getOrDefault(slot, -1);
-			int currentItemId = (slot < currentItems.length && currentItems[slot] != null) ? currentItems[slot].getId() : -1;
-			if (previousItemId != currentItemId) {
-				if (previousItemId != -1) removedItems.put(slot, previousItemId);
-				if (currentItemId != -1) addedItems.put(slot, currentItemId);
-			}
+	/** A per-slot edit is folded into the packed layout and its key reset, committed together. */
+	private void updateManualSlot(int slot, String value) {
+		if (value == null || value.trim().isEmpty()) {
+			return; // Our own reset after folding, or the field was cleared by hand
 		}
-		log.trace("Phase 1 - Analysing Moves: RemovedMap={}, AddedMap={}", removedItems, addedItems);
-		for (Map.Entry<Integer, Integer> removedEntry : removedItems.entrySet()) {
-			int removedId = removedEntry.getValue();
-			boolean wasMoved = false;
-			for(Map.Entry<Integer, Integer> addedEntry : addedItems.entrySet()) {
-				if (addedEntry.getValue().equals(removedId)) { wasMoved = true; break; }
-			}
-			if(wasMoved) { movedItemIds.add(removedId); }
-		}
-		log.trace("Phase 1 - Final MovedIDs set for this event: {}", movedItemIds);
-		log.trace("Phase 1 Results: Removed={}, Added={}, MovedIDs={}", removedItems, addedItems, movedItemIds);
-
-		// Phase 2: Process Added Items (Remove matching AUTOMATIC shadows)
-		Iterator<Map.Entry<Integer, Integer>> addedIterator = addedItems.entrySet().iterator();
-		while (addedIterator.hasNext()) {
-			Map.Entry<Integer, Integer> addedEntry = addedIterator.next();
-			int addedItemId = addedEntry.getValue();
-			if (movedItemIds.contains(addedItemId)) { continue; }
-			int idToCheck = addedItemId;
-			try { // Normalize Coins
-				ItemComposition definition = itemManager.getItemComposition(idToCheck);
-				if (definition != null && definition.getName().equalsIgnoreCase("Coins")) { idToCheck = COINS; }
-			} catch (Exception e) { log.error("Error looking up item def for added ID {}: {}", idToCheck, e.getMessage()); }
-
-			int shadowSlotToRemove = -1;
-			for (Map.Entry<Integer, Integer> shadowEntry : reservedSlots.entrySet()) { // Check automatic map
-				if (shadowEntry.getValue().equals(idToCheck)) { shadowSlotToRemove = shadowEntry.getKey(); break; }
-			}
-			if (shadowSlotToRemove != -1) {
-				if (reservedSlots.remove(shadowSlotToRemove) != null) {
-					log.debug("Removed AUTOMATIC shadow state for item ID {} from slot {}", idToCheck, shadowSlotToRemove);
-					stateChanged = true;
-				}
-			}
+		int itemId = ManualShadowConfig.parseItemId(value);
+		if (itemId == SlotTable.EMPTY) {
+			log.warn("Invalid manual config for slot {}: '{}' is not a valid positive Item ID.", slot, value);
+			return;
 		}
+		ConfigTransactions.Transaction tx = configTransactions.begin();
+		String key = ManualShadowConfig.slotKey(slot);
+		tx.assume(key, value);
+		tx.unset(key);
+		manualPacked.put(slot, itemId);
+		stageManualLayout(tx);
+		tx.commit();
+		applyManualLayout();
+	}
 
-		// Phase 3: Process Removed Items (Add AUTOMATIC shadows)
-		Iterator<Map.Entry<Integer, Integer>> removedIterator = removedItems.entrySet().iterator();
-		while (removedIterator.hasNext()) {
-			Map.Entry<Integer, Integer> removedEntry = removedIterator.next();
-			int removedItemId = removedEntry.getValue();
-			int removedSlot = removedEntry.getKey();
-			if (movedItemIds.contains(removedItemId)) { // Skip moved items
-				log.trace("Skipping automatic shadow add for removed item {} from slot {} because it was moved.", removedItemId, removedSlot);
-				continue;
-			}
-			int shadowItemId = removedItemId;
-			try { // Normalize Coins
-				ItemComposition definition = itemManager.getItemComposition(shadowItemId);
-				if (definition != null && definition.getName().equalsIgnoreCase("Coins")) { shadowItemId = COINS; }
-			} catch (Exception e) { log.error("Error looking up item def for removed ID {}: {}", shadowItemId, e.getMessage()); }
-
-			boolean slotNowEmpty = !(removedSlot < currentItems.length && currentItems[removedSlot] != null && currentItems[removedSlot].getId() != -1);
-			if(slotNowEmpty) {
-				reservedSlots.put(removedSlot, shadowItemId); // Add to automatic map
-				log.debug("Added AUTOMATIC shadow state for item ID {} to slot {}", shadowItemId, removedSlot);
-				stateChanged = true;
-			} else {
-				log.debug("Skipped adding automatic shadow for removed item {} slot {} because slot was immediately filled.", shadowItemId, removedSlot);
-			}
+	/** Applies a packed layout edited in the config panel; every slot is merged before a single publish. */
+	private void updateManualLayout(String packed) {
+		parseManualLayout(packed);
+		applyManualLayout();
+	}
+
+	private void parseManualLayout(String packed) {
+		manualLayoutValue = packed;
+		int skipped = ManualShadowConfig.parseLayout(packed, manualPacked);
+		if (skipped > 0) {
+			log.warn("Ignored {} malformed entries in the packed manual layout '{}'.", skipped, packed);
 		}
+	}
 
-		// Phase 4: Handle Displaced AUTOMATIC Shadows
-		log.debug("--- Checking Displaced AUTOMATIC Shadows ---");
-		List<Integer> shadowsToReassign = new ArrayList<>();
-		Iterator<Map.Entry<Integer, Integer>> autoShadowIterator = reservedSlots.entrySet().iterator();
-		Item[] itemsAfterChanges = currentContainer.getItems();
-		while (autoShadowIterator.hasNext()) {
-			Map.Entry<Integer, Integer> entry = autoShadowIterator.next();
-			int slot = entry.getKey();
-			int shadowItemId = entry.getValue();
-			boolean slotOccupiedByRealItem = (slot < itemsAfterChanges.length && itemsAfterChanges[slot] != null && itemsAfterChanges[slot].getId() != -1);
-			if (slotOccupiedByRealItem) {
-				log.debug("Phase 4: Displacing AUTOMATIC shadow in slot {} (by real item). Item ID: {}", slot, shadowItemId);
-				try {
-					autoShadowIterator.remove(); shadowsToReassign.add(shadowItemId); stateChanged = true;
-				} catch (Exception e) { log.error("Phase 4: Error removing displaced automatic shadow", e); }
-			}
+	private void applyManualLayout() {
+		manualShadows.copyFrom(manualPacked);
+		engine.publish();
+		log.debug("Manual reserved slots map updated: {} entries", manualShadows.size());
+	}
+
+	// Stages manualPacked as the layout key's new value from the mirrored old one, without a read
+	private void stageManualLayout(ConfigTransactions.Transaction tx) {
+		tx.assume(ManualShadowConfig.LAYOUT_KEY, manualLayoutValue);
+		manualLayoutValue = ManualShadowConfig.encodeLayout(manualPacked);
+		tx.set(ManualShadowConfig.LAYOUT_KEY, manualLayoutValue);
+	}
+
+	/** Removes a slot's manual shadow and stages the packed layout without it. */
+	private boolean clearManualSlot(int slot, ConfigTransactions.Transaction tx) {
+		boolean existed = manualShadows.remove(slot) != SlotTable.EMPTY;
+		if (manualPacked.remove(slot) != SlotTable.EMPTY) {
+			stageManualLayout(tx);
 		}
-		boolean relocationEnabled = true; // Assume true, or read from config
-		if (relocationEnabled && !shadowsToReassign.isEmpty()) {
-			log.debug("Phase 4: Trying to relocate {} displaced AUTOMATIC shadows.", shadowsToReassign.size());
-			Item[] latestItems = client.getItemContainer(InventoryID.INVENTORY).getItems();
-			if (latestItems != null) {
-				for (int itemIdToPlace : shadowsToReassign) {
-					boolean placed = tryReassignShadow(itemIdToPlace, latestItems, reservedSlots, inventorySize);
-					if (!placed) { log.warn("Phase 4: Relocation failed for automatic shadow item ID {}.", itemIdToPlace); }
-				}
-			} else { log.error("Phase 4: Cannot relocate automatic shadows, failed to get current inventory items."); }
-		} else if (!shadowsToReassign.isEmpty()) {
-			log.debug("Phase 4: Relocation disabled or no shadows to relocate. {} displaced automatic shadows lost.", shadowsToReassign.size());
+		return existed;
+	}
+
+	// --- Automatic Shadow Logic (see ShadowEngine) ---
+	private void processDirtyInventory() {
+		int folded = pendingInventoryEvents;
+		inventoryDirty = false;
+		pendingInventoryEvents = 0;
+		if (!engine.isInitialized()) {
+			return;
 		}
+		if (log.isTraceEnabled()) { // Skip boxing the count on every batch
+			log.trace("Processing {} batched inventory update(s).", folded);
+		}
+		processInventoryChange(client.getItemContainer(InventoryID.INVENTORY), folded);
+	}
+
+	private void processInventoryChange(ItemContainer currentContainer, int eventsFolded) {
+		if (currentContainer == null) { log.warn("processInventoryChange called with null inventory container."); return; }
+		Item[] currentItems = currentContainer.getItems();
+		if (currentItems == null) { log.warn("processInventoryChange called with null items array."); return; }
 
-		// Phase 5: Update Previous State
-		updatePreviousInventoryState(currentItems);
+		InventoryDiffEvent diffEvent = PerryJfr.inventoryDiff ? new InventoryDiffEvent() : null;
+		if (diffEvent != null) {
+			diffEvent.begin();
+		}
+		int inventorySize = Math.min(currentContainer.size(), INVENTORY_SIZE);
+		fillRawIds(currentItems, inventorySize);
+		recordTrace(inventorySize);
+		long skippedBefore = engine.getEventsSkipped();
+		long diffStart = metrics.startTimer();
+		boolean stateChanged = engine.apply(rawItemIds, inventorySize);
+		metrics.recordDiff(diffStart);
 
 		// Save Shadows if Automatic State Changed (Save frequently)
 		if (stateChanged) {
-			log.debug("Automatic shadow state changed. Saving shadows now...");
-			saveShadows(); // Call standard save method
+			if (log.isTraceEnabled()) {
+				log.trace("Automatic shadow state changed (+{} -{} ~{}). Saving shadows now...",
+						engine.lastShadowsAdded(), engine.lastShadowsRemoved(), engine.lastShadowsRelocated());
+			}
+			saveShadows(); // Journaled (or coalesced), written off the client thread
 		} else {
 			log.trace("No changes to automatic shadow state detected that require saving.");
 		}
-	}
 
-	// Helper for relocating AUTOMATIC shadows (only checks automatic map)
-	private boolean tryReassignShadow(int shadowItemId, Item[] currentItems, Map<Integer, Integer> currentReservedSlots, int inventorySize) {
-		for (int slot = 0; slot < inventorySize; slot++) {
-			boolean slotIsEmptyOfRealItem = !(slot < currentItems.length && currentItems[slot] != null && currentItems[slot].getId() != -1);
-			boolean slotIsEmptyOfAutoShadow = !currentReservedSlots.containsKey(slot);
-			if (slotIsEmptyOfRealItem && slotIsEmptyOfAutoShadow) {
-				currentReservedSlots.put(slot, shadowItemId);
-				log.debug("Relocated AUTOMATIC shadow for item ID {} to available slot {}", shadowItemId, slot);
-				return true;
+		if (diffEvent != null) {
+			diffEvent.end();
+			if (diffEvent.shouldCommit()) {
+				diffEvent.eventsFolded = eventsFolded;
+				diffEvent.skipped = engine.getEventsSkipped() != skippedBefore;
+				diffEvent.slotsChanged = engine.lastChangedSlots();
+				diffEvent.shadowsAdded = engine.lastShadowsAdded();
+				diffEvent.shadowsRemoved = engine.lastShadowsRemoved();
+				diffEvent.shadowsRelocated = engine.lastShadowsRelocated();
+				diffEvent.commit();
 			}
 		}
-		log.debug("Could not find suitable empty slot to relocate shadow ID {}", shadowItemId);
-		return false; // Ensure return false exists
 	}
 
 
-	// --- State Initialization and Update Helpers ---
+	// --- State Initialization Helpers ---
 	private void initializeInventoryState() {
 		ItemContainer inventory = client.getItemContainer(InventoryID.INVENTORY);
 		if (inventory != null) {
 			log.debug("Initializing previous inventory state...");
-			updatePreviousInventoryState(inventory.getItems());
-			log.debug("Initialized previous inventory state. Current state: {}", previousInventoryState);
+			Item[] items = inventory.getItems();
+			if (items == null) { log.warn("Could not initialize inventory state - null items array."); return; }
+			int size = Math.min(items.length, INVENTORY_SIZE);
+			fillRawIds(items, size);
+			recordTrace(size);
+			engine.initialize(rawItemIds, size);
+			log.debug("Initialized previous inventory state. Current state: {}", engine.getPrevious());
 		} else {
-			previousInventoryState.clear();
+			engine.reset();
 			log.warn("Could not initialize inventory state (called from WidgetLoaded) - inventory container not found.");
 		}
 	}
 
-	private void updatePreviousInventoryState(Item[] items) {
-		previousInventoryState.clear();
-		if (items == null) { log.warn("updatePreviousInventoryState called with null items array."); return; }
-		for (int slot = 0; slot < items.length; slot++) {
-			if (items[slot] != null && items[slot].getId() != -1) {
-				previousInventoryState.put(slot, items[slot].getId());
-			}
+	/** Writes the raw item ID of each slot (or -1 for empty) into the scratch buffer. */
+	private void fillRawIds(Item[] items, int size) {
+		for (int slot = 0; slot < size; slot++) {
+			rawItemIds[slot] = (slot < items.length && items[slot] != null) ? items[slot].getId() : -1;
 		}
-		log.trace("Updated previousInventoryState: {}", previousInventoryState);
 	}
 
-	// --- Persistence Methods (Using Standard Config) ---
-	private void loadShadows() {
+	// --- Per-Account / World-Type Profiles ---
+	private void refreshProfileScope() {
+		String profile = configManager.getRSProfileKey();
+		if (profile == null) {
+			return; // Not logged in yet; keep whatever is loaded
+		}
+		String suffix = config.layoutPerWorldType() ? "." + worldTypeBucket() : "";
+		if (profile.equals(activeProfile) && suffix.equals(activeKeySuffix)) {
+			return;
+		}
+		log.debug("Shadow profile changing from {}{} to {}{}.", activeProfile, activeKeySuffix, profile, suffix);
+		flushShadows(); // Finish writing the outgoing layout under its own profile
+		closeJournal();
+		flushContainerShadows(true);
+		activeProfile = profile;
+		activeKeySuffix = suffix;
+		shadowPersistence.setScope(profile, suffix);
+		selectPreset(configManager.getConfiguration(CONFIG_GROUP, profile, ACTIVE_PRESET_KEY));
+		// The outgoing account's shadows must not show or be saved while the new ones load
 		reservedSlots.clear();
-		String json = null;
-		log.debug("Attempting to load shadows using configManager.getConfiguration for key: {}", SHADOW_DATA_KEY);
+		engine.publish();
+		loadShadowsAsync();
+		prefetchPresets();
+	}
+
+	private String worldTypeBucket() {
+		EnumSet<WorldType> types = client.getWorldType();
+		if (types.contains(WorldType.PVP) || types.contains(WorldType.HIGH_RISK)) {
+			return "pvp";
+		}
+		return types.contains(WorldType.MEMBERS) ? "members" : "f2p";
+	}
+
+	// --- Layout Presets ---
+	private void updatePresets() {
+		presets = LayoutPresets.parse(config.layoutPresets());
+		if (LayoutPresets.indexOf(presets, activePreset) == -1 && !LayoutPresets.isDefault(activePreset)) {
+			log.debug("Active preset {} was removed; back to the default layout.", activePreset);
+			switchPreset(LayoutPresets.DEFAULT_NAME);
+		}
+		prefetchPresets();
+	}
+
+	private void cyclePreset() {
+		if (presets.isEmpty()) {
+			return;
+		}
+		switchPreset(LayoutPresets.next(presets, activePreset));
+		sendChatMessage("PerryVentory layout: " + activePreset + ".");
+	}
+
+	/**
+	 * Makes another preset's automatic shadows active. The outgoing layout is saved first; the
+	 * incoming one normally comes straight from the persistence cache, already decoded, and its
+	 * journal is opened on the executor so the switch does no file I/O on the client thread.
+	 */
+	private void switchPreset(String name) {
+		String previousKey = inventoryDataKey;
+		flushShadows();
+		selectPreset(name);
+		if (inventoryDataKey.equals(previousKey)) {
+			return;
+		}
+		closeJournal();
+		if (activeProfile != null) {
+			if (LayoutPresets.isDefault(activePreset)) {
+				configManager.unsetConfiguration(CONFIG_GROUP, activeProfile, ACTIVE_PRESET_KEY);
+			} else {
+				configManager.setConfiguration(CONFIG_GROUP, activeProfile, ACTIVE_PRESET_KEY, activePreset);
+			}
+		}
+		loadShadows();
+		log.debug("Switched to layout preset {} ({} shadows).", activePreset, reservedSlots.size());
+	}
+
+	// Points the inventory at a preset's key without any I/O; unknown names fall back to the default
+	private void selectPreset(String name) {
+		int index = LayoutPresets.indexOf(presets, name);
+		activePreset = index != -1 ? presets.get(index) : LayoutPresets.DEFAULT_NAME;
+		inventoryDataKey = LayoutPresets.dataKey(TrackedContainer.INVENTORY.getDataKey(), activePreset);
+	}
+
+	/** Decodes the other presets and requests their item images on the executor, so switching waits on neither. */
+	private void prefetchPresets() {
+		if (activeProfile == null || presets.isEmpty()) {
+			return;
+		}
+		List<String> names = presets;
+		String active = activePreset;
+		executor.execute(() -> {
+			for (String name : names) {
+				if (!name.equals(active)) {
+					String key = LayoutPresets.dataKey(TrackedContainer.INVENTORY.getDataKey(), name);
+					spriteCache.prewarm(shadowPersistence.prefetch(key, INVENTORY_SIZE));
+				}
+			}
+		});
+	}
+
+	// --- Other Tracked Containers (the bank) ---
+	private void updateTrackedContainers() {
+		containerTracked[TrackedContainer.BANK.ordinal()] = config.trackBank();
+	}
+
+	/** Applies the configured placement of covered shadows to every engine; runs on the client thread. */
+	private void updateRelocationPolicy() {
+		RelocationPolicy policy = config.relocationPolicy();
+		engine.setRelocationPolicy(policy);
+		for (int i = 0; i < containerEngines.length(); i++) {
+			ShadowEngine containerEngine = containerEngines.get(i);
+			if (containerEngine != null) {
+				containerEngine.setRelocationPolicy(policy);
+			}
+		}
+	}
+
+	/** Resolved shadows of another tracked container, or an empty snapshot if it isn't tracked yet; read by {@link BankShadowOverlay}. */
+	public ShadowSnapshot getContainerSnapshot(TrackedContainer tracked) {
+		if (tracked == TrackedContainer.INVENTORY) {
+			return engine.getSnapshot();
+		}
+		ShadowEngine containerEngine = containerEngines.get(tracked.ordinal());
+		return containerEngine != null ? containerEngine.getSnapshot() : ShadowSnapshot.EMPTY;
+	}
+
+	private void clearContainerShadow(TrackedContainer tracked, int slot) {
+		ShadowEngine containerEngine = containerEngines.get(tracked.ordinal());
+		if (containerEngine == null || containerEngine.getShadows().remove(slot) == SlotTable.EMPTY) {
+			return;
+		}
+		containerEngine.publish();
+		shadowPersistence.requestSave(tracked.getDataKey(), containerEngine.getShadows());
+		sendChatMessage("PerryVentory bank shadow cleared.");
+	}
+
+	private void processContainerChange(TrackedContainer tracked, ItemContainer container) {
+		if (container == null || container.getItems() == null) {
+			return;
+		}
+		Item[] items = container.getItems();
+		int size = Math.max(container.size(), items.length);
+		ShadowEngine containerEngine = containerEngines.get(tracked.ordinal());
+		if (containerEngine == null || containerEngine.capacity() < size) {
+			containerEngine = createContainerEngine(tracked, containerEngine, size);
+		}
+		if (containerRawIds.length < size) {
+			containerRawIds = new int[size];
+		}
+		for (int slot = 0; slot < size; slot++) {
+			containerRawIds[slot] = (slot < items.length && items[slot] != null) ? items[slot].getId() : -1;
+		}
+
+		if (!containerEngine.isInitialized()) {
+			containerEngine.initialize(containerRawIds, size);
+			log.debug("Initialized {} layout ({} slots).", tracked, size);
+			return;
+		}
+		if (containerEngine.apply(containerRawIds, size)) {
+			shadowPersistence.requestSave(tracked.getDataKey(), containerEngine.getShadows());
+		}
+	}
+
+	private ShadowEngine createContainerEngine(TrackedContainer tracked, ShadowEngine existing, int size) {
+		ShadowEngine created = new ShadowEngine(Math.max(tracked.getDefaultCapacity(), size), 0, tracked.isCompacting(), canonicalItemResolver::resolve);
+		created.setRelocationPolicy(config.relocationPolicy());
+		if (existing != null) {
+			// Container grew (e.g. bank space unlocked); carry the shadows over
+			created.getShadows().copyFrom(existing.getShadows());
+		} else {
+			shadowPersistence.load(tracked.getDataKey(), created.getShadows());
+		}
+		created.publish();
+		containerEngines.set(tracked.ordinal(), created);
+		log.debug("Tracking {} shadows with capacity {}.", tracked, created.capacity());
+		return created;
+	}
+
+	/** Saves every other container's shadows now; on shutdown the engines are dropped as well. */
+	private void flushContainerShadows(boolean discard) {
+		for (TrackedContainer tracked : TrackedContainer.values()) {
+			ShadowEngine containerEngine = containerEngines.get(tracked.ordinal());
+			if (containerEngine == null) {
+				continue;
+			}
+			shadowPersistence.saveNow(tracked.getDataKey(), containerEngine.getShadows());
+			if (discard) {
+				containerEngines.set(tracked.ordinal(), null);
+			} else {
+				containerEngine.reset();
+			}
+		}
+	}
+
+	// --- Trace Recording (replayed offline by ShadowReplay) ---
+	private void updateTraceRecorder() {
+		if (config.recordInventoryTrace()) {
+			startTraceRecorder();
+		} else {
+			stopTraceRecorder();
+		}
+	}
+
+	private void startTraceRecorder() {
+		if (traceRecorder != null) {
+			return;
+		}
+		Path file = RuneLite.RUNELITE_DIR.toPath()
+				.resolve(CONFIG_GROUP).resolve("traces").resolve("inventory-" + System.currentTimeMillis() + ".trace");
+		try {
+			traceRecorder = InventoryTrace.create(file);
+			log.info("Recording inventory trace to {}", file);
+			if (engine.isInitialized()) {
+				// Start the trace from the current layout so the first recorded change has a baseline
+				clientThread.invokeLater(() -> {
+					ItemContainer inventory = client.getItemContainer(InventoryID.INVENTORY);
+					if (inventory != null && inventory.getItems() != null) {
+						int size = Math.min(inventory.size(), INVENTORY_SIZE);
+						fillRawIds(inventory.getItems(), size);
+						recordTrace(size);
+					}
+				});
+			}
+		} catch (IOException e) {
+			log.warn("Could not start inventory trace at {}", file, e);
+		}
+	}
+
+	private void stopTraceRecorder() {
+		if (traceRecorder == null) {
+			return;
+		}
+		try {
+			traceRecorder.close();
+		} catch (IOException e) {
+			log.warn("Could not close inventory trace", e);
+		}
+		traceRecorder = null;
+		log.info("Inventory trace recording stopped.");
+	}
+
+	private void recordTrace(int size) {
+		if (traceRecorder == null) {
+			return;
+		}
 		try {
-			json = configManager.getConfiguration(CONFIG_GROUP, SHADOW_DATA_KEY);
-		} catch (Exception e) { log.error("Error reading shadow data using getConfiguration", e); return; }
+			traceRecorder.record(System.currentTimeMillis(), rawItemIds, size);
+		} catch (IOException e) {
+			log.warn("Inventory trace write failed; recording stopped.", e);
+			stopTraceRecorder();
+		}
+	}
 
-		if (json != null && !json.isEmpty()) {
-			log.debug("Loaded shadows json (from standard config): {}", json);
+	// --- Persistence Methods (Journal + snapshot via ShadowPersistence) ---
+	/**
+	 * Loads the active layout for a preset switch. The table normally comes straight from the decoded
+	 * cache, so it shows on this frame; the journal is opened and replayed on the executor, and saves
+	 * wait for it as they do for a background load. On a cache miss the layout shows empty until
+	 * {@link #loadShadowsAsync} has decoded it, so the client thread never reads config here.
+	 */
+	private void loadShadows() {
+		String key = inventoryDataKey;
+		if (!shadowPersistence.loadCached(key, reservedSlots)) {
+			engine.publish();
+			loadShadowsAsync();
+			return;
+		}
+		int generation = ++loadGeneration; // Supersedes any background load
+		loadPending = true;
+		engine.publish();
+		Path file = journalFile(key);
+		SlotTable loaded = new SlotTable(INVENTORY_SIZE);
+		loaded.copyFrom(reservedSlots);
+		executor.execute(() -> {
+			ShadowJournal opened = openJournal(file, loaded);
+			// Only a replayed journal changes what is already showing
+			boolean replayed = opened != null && opened.replayedSteps() > 0;
+			clientThread.invokeLater(() -> finishLoad(generation, key, loaded, opened, replayed));
+		});
+	}
+
+	/**
+	 * Decodes the active layout on the executor, replays its journal and requests the item image of
+	 * every automatic and manual shadow there too; each sprite is built as soon as its image loads.
+	 * The client thread warms the canonical IDs of those shadows, then copies the finished table in
+	 * and publishes once.
+	 */
+	private void loadShadowsAsync() {
+		int generation = ++loadGeneration;
+		loadPending = true;
+		String key = inventoryDataKey;
+		Path file = journalFile(key);
+		SlotTable manual = new SlotTable(INVENTORY_SIZE);
+		manual.copyFrom(manualShadows);
+		executor.execute(() -> {
+			SlotTable loaded = new SlotTable(INVENTORY_SIZE);
 			try {
-				if (gson == null) gson = new Gson();
-				Map<Integer, Integer> loaded = gson.fromJson(json, SHADOW_MAP_TYPE);
-				if (loaded != null) {
-					reservedSlots.putAll(loaded);
-					log.info("Loaded {} shadows from standard config.", loaded.size());
-				} else { log.warn("Deserialization of standard config shadows resulted in a null map."); }
-			} catch (Exception e) { log.error("Failed to parse shadows json from standard config", e); }
+				shadowPersistence.load(key, loaded);
+			} catch (Exception e) { log.error("Background load of shadows for key {} failed", key, e); }
+			ShadowJournal opened = openJournal(file, loaded);
+			// Requested back to back, so the item images load together rather than one per frame
+			spriteCache.prewarm(loaded);
+			spriteCache.prewarm(manual);
+			// Item definitions must be read on the client thread; resolve the likely IDs there now,
+			// before the first diff (the inventory itself is resolved when its layout is initialised)
+			int[] warmIds = CanonicalItemResolver.warmUpIds(loaded, manual);
+			clientThread.invokeLater(() -> canonicalItemResolver.warm(warmIds));
+			// Shadows made while loading belonged to no saved layout; the loaded one replaces them
+			clientThread.invokeLater(() -> finishLoad(generation, key, loaded, opened, true));
+		});
+	}
+
+	// Installs a load finished on the executor, unless a scope change, preset switch or shutdown superseded it
+	private void finishLoad(int generation, String key, SlotTable loaded, ShadowJournal opened, boolean replace) {
+		if (generation != loadGeneration) {
+			if (opened != null) {
+				opened.close();
+			}
+			return;
+		}
+		if (replace) {
+			reservedSlots.copyFrom(loaded);
+		}
+		journal = opened;
+		loadPending = false;
+		engine.publish();
+		log.debug("Loaded {} automatic shadows for key {} in the background.", reservedSlots.size(), key);
+	}
+
+	/** Opens the layout's journal and replays it onto {@code state}; null (full saves only) if that fails. */
+	private ShadowJournal openJournal(Path file, SlotTable state) {
+		if (file == null) {
+			return null;
+		}
+		try {
+			ShadowJournal opened = ShadowJournal.open(file, state, ShadowJournal.hash(state), executor, metrics);
+			if (opened.replayedSteps() > 0) {
+				log.info("Replayed {} journaled shadow changes from {}.", opened.replayedSteps(), file.getFileName());
+			}
+			return opened;
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not open shadow journal {}; saving full layouts instead.", file, e);
+			return null;
+		}
+	}
+
+	private Path journalFile(String key) {
+		if (activeProfile == null) {
+			return null;
+		}
+		return RuneLite.RUNELITE_DIR.toPath().resolve(CONFIG_GROUP).resolve("journal")
+				.resolve(fileName(activeProfile)).resolve(fileName(key + activeKeySuffix) + ".journal");
+	}
+
+	private static String fileName(String name) {
+		return name.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	private void closeJournal() {
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
+	}
+
+	private boolean journalActive() {
+		return journal != null && !journal.isFailed();
+	}
+
+	// True if undo (or redo) would do something right now; gates the menu entries
+	private boolean canStep(boolean redo) {
+		return journalActive() && !loadPending && (redo ? journal.canRedo() : journal.canUndo());
+	}
+
+	/**
+	 * Steps the automatic shadows back (or forward) one journaled change. A restored shadow may sit
+	 * under an item that arrived since, so the engine's displacement pass runs straight after and
+	 * its moves are journaled as a change of their own.
+	 */
+	private void undoShadows(boolean redo) {
+		if (!journalActive() || !canPersist()) {
+			return;
+		}
+		boolean changed = redo ? journal.redo(reservedSlots) : journal.undo(reservedSlots);
+		if (!changed) {
+			sendChatMessage(redo ? "Nothing to redo." : "Nothing to undo.");
+			return;
+		}
+		if (engine.displaceCovered()) {
+			saveShadows();
 		} else {
-			log.debug("No previous shadow data found in standard config for key {}.", SHADOW_DATA_KEY);
+			engine.publish();
+			if (journal.needsCompaction()) {
+				flushShadows();
+			}
+		}
+		sendChatMessage(redo ? "PerryVentory shadows: change redone." : "PerryVentory shadows: change undone.");
+	}
+
+	// Nothing is written until a profile's layout has been loaded, so an empty table never overwrites it
+	private boolean canPersist() {
+		if (activeProfile == null || loadPending) {
+			log.trace("Shadow save skipped: layout for this profile not loaded yet.");
+			return false;
 		}
+		return true;
 	}
 
+	/** Journals the changed slots, or queues a coalesced full save when there is no journal. */
 	private void saveShadows() {
-		if (reservedSlots.isEmpty()) {
-			log.debug("Shadow map empty. Unsetting standard configuration for key: {}", SHADOW_DATA_KEY);
-			try {
-				configManager.unsetConfiguration(CONFIG_GROUP, SHADOW_DATA_KEY);
-			} catch (Exception e) { log.error("Error unsetting shadow data standard config", e); }
+		if (!canPersist()) {
+			return;
+		}
+		if (journalActive()) {
+			journal.record(reservedSlots);
+			if (journal.needsCompaction()) {
+				flushShadows();
+			}
 		} else {
-			log.debug("Attempting to save {} shadows to standard configuration...", reservedSlots.size());
-			if (gson == null) { log.error("Gson is null, cannot save shadows!"); return; }
-			try {
-				String json = gson.toJson(reservedSlots);
-				log.debug("Saving shadows json to standard config: {}", json);
-				configManager.setConfiguration(CONFIG_GROUP, SHADOW_DATA_KEY, json);
-				log.debug("Saved {} shadows to standard config.", reservedSlots.size());
-			} catch (Exception e) { log.error("Error saving shadow data to standard config. Map size: {}", reservedSlots.size(), e); }
+			shadowPersistence.requestSave(inventoryDataKey, reservedSlots);
+		}
+	}
+
+	/** Stores the full layout as the config snapshot now and compacts the journal behind it. */
+	private void flushShadows() {
+		if (!canPersist()) {
+			return;
+		}
+		if (journalActive()) {
+			journal.record(reservedSlots);
+		}
+		shadowPersistence.saveNow(inventoryDataKey, reservedSlots);
+		if (journalActive()) {
+			journal.compact(ShadowJournal.hash(reservedSlots));
 		}
 	}
 
@@ -589,7 +1201,7 @@ public class PerryVentoryPlugin extends Plugin {
 			// Clear automatic shadows
 			if (!reservedSlots.isEmpty()) {
 				reservedSlots.clear();
-				saveShadows(); // Persist cleared automatic state
+				flushShadows(); // Persist cleared automatic state
 				changed = true;
 				log.info("Cleared all automatic shadows.");
 			}
@@ -599,20 +1211,17 @@ public class PerryVentoryPlugin extends Plugin {
 				manualShadows.clear(); // Clear runtime map
 				manualCleared = true;
 			}
-			// Clear manual config entries
-			for (int i=0; i<28; i++) {
-				String keyName = "slot" + i + "Item";
-				if (configManager.getConfiguration(CONFIG_GROUP, keyName) != null && !configManager.getConfiguration(CONFIG_GROUP, keyName).isEmpty()) {
-					configManager.unsetConfiguration(CONFIG_GROUP, keyName);
-					manualCleared = true;
-				}
-			}
-			// Also clear the specific slot input field
-			if (configManager.getConfiguration(CONFIG_GROUP, "clearSlotNumberInput") != null && !configManager.getConfiguration(CONFIG_GROUP, "clearSlotNumberInput").isEmpty()) {
-				configManager.unsetConfiguration(CONFIG_GROUP, "clearSlotNumberInput");
-				manualCleared = true; // Count this as manual change for logging
+			if (manualLayoutValue != null && !manualLayoutValue.isEmpty()) {
+				manualCleared = true;
 			}
+			// Per-slot keys are folded into the packed layout as they are set, so clearing it is one
+			// write staged from the mirrored value; its echo is ignored since state is already cleared
+			manualPacked.clear();
+			ConfigTransactions.Transaction tx = configTransactions.begin();
+			stageManualLayout(tx);
+			tx.commit();
 
+			engine.publish();
 			if(manualCleared) {
 				log.info("Cleared all manual shadows and config entries.");
 				changed = true; // Ensure notification if manual was cleared
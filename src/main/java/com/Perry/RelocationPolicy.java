@@ -0,0 +1,25 @@
+package com.Perry;
+
+import lombok.Getter;
+
+/** Where an automatic shadow goes when a real item lands on its slot. */
+public enum RelocationPolicy {
+	/** The free slot closest on the grid to where the shadow was. */
+	NEAREST("Nearest free slot"),
+	/** The closest free slot in the shadow's column; the nearest anywhere if the column is full. */
+	SAME_COLUMN("Same column"),
+	/** Remove the shadow. */
+	DROP("Remove shadow");
+
+	@Getter
+	private final String displayName;
+
+	RelocationPolicy(String displayName) {
+		this.displayName = displayName;
+	}
+
+	@Override
+	public String toString() {
+		return displayName;
+	}
+}
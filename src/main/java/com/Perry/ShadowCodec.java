@@ -0,0 +1,126 @@
+package com.Perry;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+
+/**
+ * Compact, versioned text encoding for a {@link SlotTable}.
+ * <p>
+ * Layout (before base64): a version byte, the slot count as a varint, an occupancy bitmap of
+ * one bit per slot, then the item ID of each occupied slot in slot order as a zigzag varint of
+ * the difference from the previous one. A full 28-slot layout is usually well under 100 bytes,
+ * against several hundred for the old JSON map. Base64 output never starts with '{', so values
+ * written by older versions are easy to tell apart.
+ */
+public final class ShadowCodec {
+
+	static final int VERSION = 1;
+
+	private ShadowCodec() {
+	}
+
+	public static String encode(SlotTable table) {
+		int capacity = table.capacity();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8 + capacity / 8 + table.size() * 3);
+		out.write(VERSION);
+		writeVarint(out, capacity);
+
+		byte[] occupancy = new byte[(capacity + 7) / 8];
+		for (int slot = table.nextSlot(0); slot != -1; slot = table.nextSlot(slot + 1)) {
+			occupancy[slot >>> 3] |= 1 << (slot & 7);
+		}
+		out.write(occupancy, 0, occupancy.length);
+
+		int previousId = 0;
+		for (int slot = table.nextSlot(0); slot != -1; slot = table.nextSlot(slot + 1)) {
+			int itemId = table.get(slot);
+			writeVarint(out, zigzag(itemId - previousId));
+			previousId = itemId;
+		}
+		return Base64.getEncoder().withoutPadding().encodeToString(out.toByteArray());
+	}
+
+	/**
+	 * Decodes a value produced by {@link #encode(SlotTable)} into {@code target}, which is cleared
+	 * first. Slots beyond the target's capacity are dropped.
+	 * @throws IllegalArgumentException if the value is malformed or from an unknown version
+	 */
+	public static void decode(String encoded, SlotTable target) {
+		byte[] data;
+		try {
+			data = Base64.getDecoder().decode(encoded);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Shadow data is not valid base64", e);
+		}
+		int[] pos = {0};
+		int version = readByte(data, pos);
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported shadow data version " + version);
+		}
+		int capacity = readVarint(data, pos);
+		if (capacity < 0 || (capacity + 7L) / 8 > data.length - pos[0]) {
+			throw new IllegalArgumentException("Shadow data truncated in occupancy map");
+		}
+		int occupancyStart = pos[0];
+		pos[0] += (capacity + 7) / 8;
+
+		target.clear();
+		int previousId = 0;
+		for (int slot = 0; slot < capacity; slot++) {
+			if ((data[occupancyStart + (slot >>> 3)] & (1 << (slot & 7))) == 0) {
+				continue;
+			}
+			int itemId = previousId + unzigzag(readVarint(data, pos));
+			previousId = itemId;
+			if (slot < target.capacity()) {
+				target.put(slot, itemId);
+			}
+		}
+	}
+
+	/** True if the value looks like the legacy Gson {"slot": itemId} map. */
+	public static boolean isLegacyJson(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				return c == '{';
+			}
+		}
+		return false;
+	}
+
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readByte(byte[] data, int[] pos) {
+		if (pos[0] >= data.length) {
+			throw new IllegalArgumentException("Shadow data truncated");
+		}
+		return data[pos[0]++] & 0xFF;
+	}
+
+	private static int readVarint(byte[] data, int[] pos) {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte(data, pos);
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint in shadow data");
+	}
+}
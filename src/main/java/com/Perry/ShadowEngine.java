@@ -0,0 +1,548 @@
+package com.Perry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The automatic shadow logic, free of any RuneLite dependency.
+ * <p>
+ * Feed it the raw item ID of every slot after each container change and it maintains the table
+ * of automatic shadows: surplus removals leave a shadow in the now-empty slot, surplus additions
+ * clear a matching shadow, and shadows covered by a real item are moved to a free slot (or removed)
+ * according to the {@link RelocationPolicy}. Free slots come from occupancy bitmasks kept in step
+ * with both, so placing a displaced shadow doesn't scan the container.
+ * Item IDs are passed through a canonicaliser first so equivalent items share shadows. All
+ * buffers are preallocated; {@link #apply(int[], int)} only allocates when it publishes a new
+ * {@link ShadowSnapshot}. Events whose raw slot layout matches the previous one (quantity-only
+ * updates to runes, ammo, coins) are recognised by a 64-bit fingerprint and skipped outright.
+ * <p>
+ * A compacting container (the bank) has no gaps: a withdrawal shifts every later item down a slot
+ * and a deposit into a tab shifts them up. Such an engine recognises a change that is exactly one
+ * run of slots removed or inserted as a shift and moves the shadows after it along with the items,
+ * instead of diffing the shifted items slot by slot. There a shadow marks the position an item was
+ * withdrawn from, in front of the item now at that slot, so real items don't displace it. Bank
+ * placeholders canonicalise to their real item; a placeholder taking an item's place is no change.
+ * <p>
+ * The engine also holds the manual shadows. Both tables are mutated on one thread only; other
+ * threads read the resolved view from {@link #getSnapshot()}, which {@link #publish()} replaces
+ * after each mutation.
+ */
+@Slf4j
+public final class ShadowEngine {
+
+	private final int capacity;
+	private final int gridColumns;
+	private final boolean compacting;
+	private final IntUnaryOperator canonicalizer;
+	private final SlotTable shadows;
+	private final SlotTable manual;
+	private final SlotTable previous;
+	private final InventoryDiff diff;
+	private final int[] current;
+	private final int[] displaced;
+	private final int[] displacedSlots;
+	private final ShadowIndex index;
+	private final SlotOccupancy occupancy;
+	private RelocationPolicy relocationPolicy = RelocationPolicy.NEAREST;
+	private int indexedVersion = -1;
+	private boolean initialized;
+	private long previousFingerprint;
+	private int previousLimit = -1;
+	// Set when shadows may sit under real items (loaded or edited externally, or a fresh layout)
+	private boolean checkAllShadows = true;
+
+	// Lifetime event counters
+	private long eventsProcessed;
+	private long eventsSkipped;
+
+	private volatile ShadowSnapshot snapshot = ShadowSnapshot.EMPTY;
+	private long snapshotVersion;
+	private int publishedAutoVersion = -1;
+	private int publishedManualVersion = -1;
+
+	// Statistics of the last apply()
+	private int lastChangedSlots;
+	private int lastShadowsAdded;
+	private int lastShadowsRemoved;
+	private int lastShadowsRelocated;
+
+	public ShadowEngine(int capacity, IntUnaryOperator canonicalizer) {
+		this(capacity, 0, canonicalizer);
+	}
+
+	/**
+	 * @param gridColumns width of the slot grid (4 for the inventory), used to pick the nearest
+	 *                    shadow when an item comes back; 0 treats slots as a plain list
+	 */
+	public ShadowEngine(int capacity, int gridColumns, IntUnaryOperator canonicalizer) {
+		this(capacity, gridColumns, false, canonicalizer);
+	}
+
+	/**
+	 * @param compacting true for a container that closes gaps as items leave (the bank)
+	 */
+	public ShadowEngine(int capacity, int gridColumns, boolean compacting, IntUnaryOperator canonicalizer) {
+		this.capacity = capacity;
+		this.gridColumns = gridColumns;
+		this.compacting = compacting;
+		this.canonicalizer = canonicalizer;
+		shadows = new SlotTable(capacity);
+		manual = new SlotTable(capacity);
+		previous = new SlotTable(capacity);
+		diff = new InventoryDiff(capacity);
+		current = new int[capacity];
+		displaced = new int[capacity];
+		displacedSlots = new int[capacity];
+		index = new ShadowIndex(capacity);
+		occupancy = new SlotOccupancy(capacity, gridColumns);
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public boolean isCompacting() {
+		return compacting;
+	}
+
+	/** Number of slots holding an automatic shadow of the (canonical) item. */
+	public int shadowCount(int itemId) {
+		syncIndex();
+		return index.count(itemId);
+	}
+
+	/** Approximate heap held by the engine's tables and current snapshot (array payloads only). */
+	public long retainedBytes() {
+		// shadows, manual, previous, current, displaced, displacedSlots
+		long ints = 6L * capacity + diff.retainedInts() + index.retainedInts();
+		return 4 * ints + occupancy.retainedBytes() + snapshot.retainedBytes();
+	}
+
+	public RelocationPolicy getRelocationPolicy() {
+		return relocationPolicy;
+	}
+
+	/** Applies from the next displaced shadow on; shadows already placed stay where they are. */
+	public void setRelocationPolicy(RelocationPolicy relocationPolicy) {
+		this.relocationPolicy = relocationPolicy != null ? relocationPolicy : RelocationPolicy.NEAREST;
+	}
+
+	/** The automatic shadows, slot -> canonical item ID. */
+	public SlotTable getShadows() {
+		return shadows;
+	}
+
+	/** The manual shadows, slot -> item ID; these take precedence over automatic ones. */
+	public SlotTable getManual() {
+		return manual;
+	}
+
+	/** The last published resolved view; safe to read from any thread. */
+	public ShadowSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Publishes a new snapshot if either shadow table changed since the last one.
+	 * Call after mutating {@link #getShadows()} or {@link #getManual()} directly.
+	 * @return true if a new snapshot was published
+	 */
+	public boolean publish() {
+		int autoVersion = shadows.getVersion();
+		int manualVersion = manual.getVersion();
+		if (autoVersion == publishedAutoVersion && manualVersion == publishedManualVersion) {
+			return false;
+		}
+		publishedAutoVersion = autoVersion;
+		publishedManualVersion = manualVersion;
+		snapshot = ShadowSnapshot.resolve(++snapshotVersion, shadows, manual);
+		return true;
+	}
+
+	/** The canonical layout the next change will be diffed against. */
+	public SlotTable getPrevious() {
+		return previous;
+	}
+
+	/** False until {@link #initialize} has recorded a starting layout, and again after {@link #reset()}. */
+	public boolean isInitialized() {
+		return initialized;
+	}
+
+	/** Forgets the previous layout (logout/hop); shadows are kept. */
+	public void reset() {
+		previous.clear();
+		initialized = false;
+	}
+
+	/** Records the starting layout without touching shadows. */
+	public void initialize(int[] rawIds, int size) {
+		previousFingerprint = fingerprint(rawIds, size);
+		int limit = canonicalize(rawIds, size);
+		storePrevious(limit, true);
+		initialized = true;
+		checkAllShadows = true;
+	}
+
+	/** True if any slot holds an automatic shadow of the (canonical) item. O(1) unless the table was edited externally. */
+	public boolean isShadowed(int itemId) {
+		syncIndex();
+		return index.contains(itemId);
+	}
+
+	/**
+	 * Diffs a new layout against the previous one and updates the automatic shadows.
+	 * @param rawIds item ID per slot, {@link SlotTable#EMPTY} for empty slots
+	 * @param size number of valid entries in {@code rawIds}
+	 * @return true if the shadow table changed
+	 */
+	public boolean apply(int[] rawIds, int size) {
+		lastShadowsAdded = 0;
+		lastShadowsRemoved = 0;
+		lastShadowsRelocated = 0;
+		long fingerprint = fingerprint(rawIds, size);
+		if (initialized && fingerprint == previousFingerprint) {
+			eventsSkipped++;
+			lastChangedSlots = 0;
+			return false;
+		}
+		eventsProcessed++;
+		previousFingerprint = fingerprint;
+		int limit = canonicalize(rawIds, size);
+
+		if (syncIndex()) {
+			checkAllShadows = true;
+		}
+		if (compacting && applyShift(limit)) {
+			storePrevious(limit, true);
+			initialized = true;
+			publish();
+			return lastShadowsAdded > 0 || lastShadowsRemoved > 0 || lastShadowsRelocated > 0;
+		}
+
+		// Phase 1: Analyze Changes (multiset diff over canonical IDs; units removed and re-added elsewhere are moves)
+		diff.compute(previous, current, limit);
+		int changedCount = diff.changedSlots();
+		lastChangedSlots = changedCount;
+		SlotTable removedItems = diff.removed();
+		SlotTable addedItems = diff.added();
+		log.trace("Phase 1 Results: Removed={}, Added={}", removedItems, addedItems);
+
+		// Phase 2: Process Added Items (surplus additions remove the matching shadow nearest to where they landed)
+		for (int i = 0; i < changedCount; i++) {
+			int addedSlot = diff.changedSlotAt(i);
+			int addedItemId = addedItems.get(addedSlot);
+			if (addedItemId == SlotTable.EMPTY || !diff.takeAdded(addedItemId)) {
+				continue; // Emptied, or moved rather than newly gained
+			}
+			int shadowSlot = index.nearest(addedItemId, addedSlot, gridColumns);
+			if (shadowSlot != -1) {
+				removeShadow(shadowSlot);
+				lastShadowsRemoved++;
+			}
+		}
+
+		// Phase 3: Process Removed Items (surplus removals leave shadows in slots that are now empty)
+		for (int i = 0; i < changedCount; i++) {
+			int removedSlot = diff.changedSlotAt(i);
+			int removedItemId = removedItems.get(removedSlot);
+			if (removedItemId == SlotTable.EMPTY || current[removedSlot] != SlotTable.EMPTY) {
+				continue; // Nothing removed, or the slot was immediately filled
+			}
+			if (!diff.takeRemoved(removedItemId)) {
+				continue; // Moved, not lost
+			}
+			putShadow(removedSlot, removedItemId);
+			lastShadowsAdded++;
+		}
+
+		// Phase 4: Handle Displaced Shadows (a real item now sits on the shadow). Shadows only ever
+		// sit on empty slots, so unless something outside the engine touched them only slots that
+		// just became occupied need checking. Each is then placed relative to where it was. In a
+		// compacting container shadows stand in front of real items, so none is ever displaced.
+		int displacedCount = 0;
+		if (compacting) {
+			checkAllShadows = false;
+		} else if (checkAllShadows) {
+			displacedCount = removeCovered(limit);
+			checkAllShadows = false;
+		} else {
+			for (int i = 0; i < changedCount; i++) {
+				int slot = diff.changedSlotAt(i);
+				if (current[slot] != SlotTable.EMPTY && shadows.contains(slot)) {
+					displacedSlots[displacedCount] = slot;
+					displaced[displacedCount++] = removeShadow(slot);
+				}
+			}
+		}
+		relocateDisplaced(displacedCount, limit);
+
+		// Phase 5: Update Previous State
+		storePrevious(limit, false);
+		initialized = true;
+		publish();
+		return lastShadowsAdded > 0 || lastShadowsRemoved > 0 || displacedCount > 0;
+	}
+
+	/**
+	 * Runs the displacement pass of {@link #apply} over every automatic shadow, against the last
+	 * applied layout: shadows under a real item move, or are dropped, per the relocation policy.
+	 * Call after replacing shadows from outside the engine (an undo, say) so none stays covered
+	 * until the next container event.
+	 * @return true if any shadow moved or was dropped
+	 */
+	public boolean displaceCovered() {
+		if (!initialized || compacting) {
+			return false;
+		}
+		syncIndex();
+		lastShadowsAdded = 0;
+		lastShadowsRemoved = 0;
+		lastShadowsRelocated = 0;
+		int displacedCount = removeCovered(previousLimit);
+		checkAllShadows = false;
+		relocateDisplaced(displacedCount, previousLimit);
+		publish();
+		return displacedCount > 0;
+	}
+
+	/** Slots whose item changed in the last {@link #apply}. */
+	public int lastChangedSlots() {
+		return lastChangedSlots;
+	}
+
+	/** Events that changed the item layout and ran the full diff. */
+	public long getEventsProcessed() {
+		return eventsProcessed;
+	}
+
+	/** Events skipped because the item layout was unchanged. */
+	public long getEventsSkipped() {
+		return eventsSkipped;
+	}
+
+	public int lastShadowsAdded() {
+		return lastShadowsAdded;
+	}
+
+	public int lastShadowsRemoved() {
+		return lastShadowsRemoved;
+	}
+
+	public int lastShadowsRelocated() {
+		return lastShadowsRelocated;
+	}
+
+	/**
+	 * Handles a compacting container's change if it is a single shift: one run of slots withdrawn,
+	 * closing the gap, or one run deposited, opening it. A withdrawn item no longer in the container
+	 * leaves a shadow where it was, shadows behind it move down with the items, and a deposited item
+	 * clears its shadow. Anything else (a tab rearranged, several changes folded) returns false for
+	 * the regular diff.
+	 */
+	private boolean applyShift(int limit) {
+		int first = 0;
+		while (first < limit && previous.get(first) == current[first]) {
+			first++;
+		}
+		if (first == limit) {
+			return false;
+		}
+		int previousEnd = limit;
+		while (previousEnd > first && previous.get(previousEnd - 1) == SlotTable.EMPTY) {
+			previousEnd--;
+		}
+		int currentEnd = limit;
+		while (currentEnd > first && current[currentEnd - 1] == SlotTable.EMPTY) {
+			currentEnd--;
+		}
+		int shift = currentEnd - previousEnd;
+		if (shift == 0) {
+			return false;
+		}
+		if (shift < 0) {
+			int gap = -shift;
+			for (int slot = first; slot < currentEnd; slot++) {
+				if (current[slot] != previous.get(slot + gap)) {
+					return false;
+				}
+			}
+			shiftShadows(first + 1, shift, first);
+			for (int slot = first; slot < first + gap; slot++) {
+				int itemId = previous.get(slot);
+				// One position per item; a shadow already in front of this slot keeps it
+				if (itemId != SlotTable.EMPTY && !index.contains(itemId) && !shadows.contains(first)) {
+					putShadow(first, itemId);
+					lastShadowsAdded++;
+				}
+			}
+			lastChangedSlots = previousEnd - first;
+		} else {
+			for (int slot = first; slot < previousEnd; slot++) {
+				if (current[slot + shift] != previous.get(slot)) {
+					return false;
+				}
+			}
+			for (int slot = first; slot < first + shift; slot++) {
+				int shadowSlot = current[slot] == SlotTable.EMPTY ? -1 : index.nearest(current[slot], slot, gridColumns);
+				if (shadowSlot != -1) {
+					removeShadow(shadowSlot);
+					lastShadowsRemoved++;
+				}
+			}
+			shiftShadows(first, shift, first);
+			lastChangedSlots = currentEnd - first;
+		}
+		return true;
+	}
+
+	// Moves every shadow at or after from by delta slots, no lower than floor; a shadow that lands on another is dropped
+	private void shiftShadows(int from, int delta, int floor) {
+		int count = 0;
+		for (int slot = shadows.nextSlot(from); slot != -1; slot = shadows.nextSlot(slot + 1)) {
+			displacedSlots[count] = slot;
+			displaced[count++] = removeShadow(slot);
+		}
+		for (int i = 0; i < count; i++) {
+			int target = Math.max(floor, displacedSlots[i] + delta);
+			if (target >= capacity || shadows.contains(target)) {
+				lastShadowsRemoved++;
+				continue;
+			}
+			putShadow(target, displaced[i]);
+			lastShadowsRelocated++;
+		}
+	}
+
+	// Takes every shadow that sits under a real item off the table, remembering where it was
+	private int removeCovered(int limit) {
+		int displacedCount = 0;
+		for (int slot = shadows.nextSlot(0); slot != -1; slot = shadows.nextSlot(slot + 1)) {
+			if (slot < limit && current[slot] != SlotTable.EMPTY) {
+				displacedSlots[displacedCount] = slot;
+				displaced[displacedCount++] = removeShadow(slot);
+			}
+		}
+		return displacedCount;
+	}
+
+	private void relocateDisplaced(int displacedCount, int limit) {
+		for (int i = 0; i < displacedCount; i++) {
+			if (relocate(displaced[i], displacedSlots[i], limit)) {
+				lastShadowsRelocated++;
+			}
+		}
+	}
+
+	// Places a displaced shadow in a slot holding neither a real item nor a shadow; false if it was dropped
+	private boolean relocate(int itemId, int origin, int limit) {
+		int slot;
+		switch (relocationPolicy) {
+			case DROP:
+				return false;
+			case SAME_COLUMN:
+				slot = occupancy.nearestFreeInColumn(origin, limit);
+				if (slot == -1) {
+					slot = occupancy.nearestFree(origin, limit); // Column full; keep the shadow rather than lose it
+				}
+				break;
+			default:
+				slot = occupancy.nearestFree(origin, limit);
+				break;
+		}
+		if (slot == -1) {
+			return false;
+		}
+		putShadow(slot, itemId);
+		return true;
+	}
+
+	/**
+	 * Order-sensitive 64-bit hash of the raw slot -> item ID layout. Each slot contributes a mixed
+	 * (slot, id) term, so equal layouts always match and a false match needs a 64-bit collision.
+	 */
+	static long fingerprint(int[] rawIds, int size) {
+		int limit = Math.min(size, rawIds.length);
+		long hash = limit;
+		for (int slot = 0; slot < limit; slot++) {
+			int rawId = rawIds[slot];
+			if (rawId >= 0) {
+				hash += mix(((long) slot << 32) | rawId);
+			}
+		}
+		return hash;
+	}
+
+	// SplitMix64 finaliser
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private int canonicalize(int[] rawIds, int size) {
+		int limit = Math.min(Math.min(size, rawIds.length), capacity);
+		for (int slot = 0; slot < limit; slot++) {
+			int rawId = rawIds[slot];
+			current[slot] = rawId < 0 ? SlotTable.EMPTY : canonicalizer.applyAsInt(rawId);
+			occupancy.setItem(slot, rawId >= 0);
+		}
+		return limit;
+	}
+
+	// Only slots in the last diff changed, unless this is a fresh layout or the container resized
+	private void storePrevious(int limit, boolean full) {
+		if (full || limit != previousLimit) {
+			previous.clear();
+			for (int slot = 0; slot < limit; slot++) {
+				if (current[slot] != SlotTable.EMPTY) {
+					previous.put(slot, current[slot]);
+				}
+			}
+		} else {
+			for (int i = 0; i < diff.changedSlots(); i++) {
+				int slot = diff.changedSlotAt(i);
+				previous.put(slot, current[slot]);
+			}
+		}
+		previousLimit = limit;
+	}
+
+	// Shadow mutations made by the engine keep the index current without a rebuild
+	private void putShadow(int slot, int itemId) {
+		syncIndex();
+		int replaced = shadows.put(slot, itemId);
+		if (replaced != SlotTable.EMPTY) {
+			index.remove(slot, replaced);
+		}
+		index.add(slot, itemId);
+		occupancy.setShadow(slot, true);
+		indexedVersion = shadows.getVersion();
+	}
+
+	private int removeShadow(int slot) {
+		syncIndex();
+		int itemId = shadows.remove(slot);
+		if (itemId != SlotTable.EMPTY) {
+			index.remove(slot, itemId);
+		}
+		occupancy.setShadow(slot, false);
+		indexedVersion = shadows.getVersion();
+		return itemId;
+	}
+
+	/** Rebuilds the index if the table was changed from outside the engine; true if it did. */
+	private boolean syncIndex() {
+		if (shadows.getVersion() == indexedVersion) {
+			return false;
+		}
+		index.rebuild(shadows);
+		occupancy.clearShadows();
+		for (int slot = shadows.nextSlot(0); slot != -1; slot = shadows.nextSlot(slot + 1)) {
+			occupancy.setShadow(slot, true);
+		}
+		indexedVersion = shadows.getVersion();
+		return true;
+	}
+}
@@ -0,0 +1,201 @@
+package com.Perry;
+
+import java.util.Arrays;
+
+/**
+ * Inverted index over a shadow table: item ID -> the slots shadowing it, in ascending slot order.
+ * Together with the table itself (slot -> item ID) it gives lookups in both directions.
+ * <p>
+ * Each item's slots form a doubly linked chain threaded through per-slot {@code next}/{@code prev}
+ * arrays, with the chain heads kept in an open-addressing table keyed by item ID. Looking up an
+ * item's shadows and removing a slot are O(1); adding a slot walks only that item's chain.
+ * Nothing allocates after construction, so matching stays independent of container size.
+ */
+final class ShadowIndex {
+
+	private static final int FREE = Integer.MIN_VALUE;
+	private static final int NONE = -1;
+
+	private final int[] keys;
+	private final int[] heads;
+	private final int[] counts;
+	private final int mask;
+	private final int maxKeys;
+	private int usedKeys;
+
+	private final int[] next;
+	private final int[] prev;
+
+	ShadowIndex(int capacity) {
+		int tableSize = Integer.highestOneBit(Math.max(capacity, 1) * 4 - 1) << 1;
+		keys = new int[tableSize];
+		heads = new int[tableSize];
+		counts = new int[tableSize];
+		mask = tableSize - 1;
+		maxKeys = tableSize / 2;
+		Arrays.fill(keys, FREE);
+		next = new int[capacity];
+		prev = new int[capacity];
+	}
+
+	/** Ints held by the index's arrays, for memory estimates. */
+	int retainedInts() {
+		return keys.length * 3 + next.length * 2;
+	}
+
+	/** Re-indexes every shadow in the table. */
+	void rebuild(SlotTable shadows) {
+		clear();
+		for (int slot = shadows.nextSlot(0); slot != -1; slot = shadows.nextSlot(slot + 1)) {
+			add(slot, shadows.get(slot));
+		}
+	}
+
+	void clear() {
+		if (usedKeys != 0) {
+			Arrays.fill(keys, FREE);
+			usedKeys = 0;
+		}
+	}
+
+	/** Lowest slot shadowing the item, or -1. */
+	int first(int itemId) {
+		int bucket = find(itemId);
+		return keys[bucket] == FREE ? NONE : heads[bucket];
+	}
+
+	/**
+	 * The slot shadowing the item that is closest to {@code slot}, or -1. With {@code columns > 0}
+	 * slots are laid out in a grid of that width and distance is Manhattan distance between cells;
+	 * otherwise it is the difference in slot index. Ties go to the lower slot.
+	 */
+	int nearest(int itemId, int slot, int columns) {
+		int best = NONE;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int candidate = first(itemId); candidate != NONE; candidate = next[candidate]) {
+			int distance;
+			int lowerBound;
+			if (columns > 0) {
+				int dy = Math.abs(candidate / columns - slot / columns);
+				distance = dy + Math.abs(candidate % columns - slot % columns);
+				lowerBound = candidate > slot ? dy : 0;
+			} else {
+				distance = Math.abs(candidate - slot);
+				lowerBound = candidate > slot ? distance : 0;
+			}
+			if (lowerBound > bestDistance) {
+				break; // Chain is ascending; everything further is at least this far away
+			}
+			if (distance < bestDistance) {
+				best = candidate;
+				bestDistance = distance;
+			}
+		}
+		return best;
+	}
+
+	/** Next higher slot shadowing the same item as {@code slot}, or -1. */
+	int next(int slot) {
+		return next[slot];
+	}
+
+	/** Number of slots shadowing the item. */
+	int count(int itemId) {
+		int bucket = find(itemId);
+		return keys[bucket] == FREE ? 0 : counts[bucket];
+	}
+
+	boolean contains(int itemId) {
+		return first(itemId) != NONE;
+	}
+
+	void add(int slot, int itemId) {
+		int bucket = find(itemId);
+		if (keys[bucket] == FREE) {
+			if (usedKeys >= maxKeys) {
+				compact();
+				bucket = find(itemId);
+			}
+			keys[bucket] = itemId;
+			heads[bucket] = NONE;
+			counts[bucket] = 0;
+			usedKeys++;
+		}
+		int before = NONE;
+		int after = heads[bucket];
+		while (after != NONE && after < slot) {
+			before = after;
+			after = next[after];
+		}
+		prev[slot] = before;
+		next[slot] = after;
+		if (after != NONE) {
+			prev[after] = slot;
+		}
+		if (before != NONE) {
+			next[before] = slot;
+		} else {
+			heads[bucket] = slot;
+		}
+		counts[bucket]++;
+	}
+
+	void remove(int slot, int itemId) {
+		int bucket = find(itemId);
+		if (keys[bucket] == FREE) {
+			return;
+		}
+		if (prev[slot] != NONE) {
+			next[prev[slot]] = next[slot];
+		} else {
+			heads[bucket] = next[slot];
+		}
+		if (next[slot] != NONE) {
+			prev[next[slot]] = prev[slot];
+		}
+		counts[bucket]--;
+	}
+
+	// Drops keys whose chains emptied; they are kept until the table fills so lookups never need tombstones
+	private void compact() {
+		for (int bucket = 0; bucket < keys.length; bucket++) {
+			// A deletion can shift another emptied key into this bucket, so recheck it
+			while (keys[bucket] != FREE && counts[bucket] == 0) {
+				delete(bucket);
+			}
+		}
+	}
+
+	// Backward-shift deletion: moves later keys of the probe run into the hole, in place
+	private void delete(int hole) {
+		keys[hole] = FREE;
+		usedKeys--;
+		for (int bucket = (hole + 1) & mask; keys[bucket] != FREE; bucket = (bucket + 1) & mask) {
+			int home = mix(keys[bucket]) & mask;
+			// Keys whose home lies cyclically in (hole, bucket] are still reachable; the rest move back
+			boolean reachable = hole <= bucket
+					? hole < home && home <= bucket
+					: hole < home || home <= bucket;
+			if (!reachable) {
+				keys[hole] = keys[bucket];
+				heads[hole] = heads[bucket];
+				counts[hole] = counts[bucket];
+				keys[bucket] = FREE;
+				hole = bucket;
+			}
+		}
+	}
+
+	private int find(int itemId) {
+		int bucket = mix(itemId) & mask;
+		while (keys[bucket] != FREE && keys[bucket] != itemId) {
+			bucket = (bucket + 1) & mask;
+		}
+		return bucket;
+	}
+
+	private static int mix(int value) {
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
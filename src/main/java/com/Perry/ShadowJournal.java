@@ -0,0 +1,379 @@
+package com.Perry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Append-only journal of changes to one automatic shadow layout, extending the snapshot kept in config.
+ * <p>
+ * Each change is a 12-byte record (slot and flags, old item ID, new item ID); the records of one
+ * {@link #record} call form a step, closed by a flag on its last record. Saving a change therefore
+ * costs a few bytes appended with {@link FileChannel} instead of re-encoding the whole layout.
+ * Every few hundred records the caller stores a full snapshot in config and calls
+ * {@link #compact(int)}, which drops all but the records since the previous snapshot.
+ * <p>
+ * Records hold absolute values, so replaying any tail of the history over a later state ends in
+ * the same state. That makes recovery simple: {@link #open} replays the whole file over whichever
+ * of the last two snapshots config holds, and ignores a step torn by a crash. A header carries
+ * the hashes of those two snapshots, so a journal that doesn't belong to the config value (a
+ * layout edited elsewhere, a failed compaction) is discarded instead of replayed.
+ * <p>
+ * The steps since the journal was opened, plus those read back from the file, form an undo
+ * history. Undo and redo are journaled as steps too, so they survive a restart.
+ * <p>
+ * All methods are called from one thread. File writes are queued on the given executor, which
+ * must run tasks in order; a write failure marks the journal {@link #isFailed() failed} and the
+ * caller falls back to full saves.
+ */
+@Slf4j
+final class ShadowJournal implements Closeable {
+
+	static final int MAGIC = 0x50564A31; // "PVJ1"
+	static final int RECORD_BYTES = 12;
+	static final int HEADER_BYTES = 12;
+	static final int COMPACT_AFTER_RECORDS = 512;
+	static final int HISTORY_LIMIT = 64;
+	// Anything larger isn't a journal this class wrote between two compactions
+	private static final long MAX_FILE_BYTES = HEADER_BYTES + 64L * COMPACT_AFTER_RECORDS * RECORD_BYTES;
+
+	static final int NORMAL = 0;
+	static final int UNDO = 1;
+	static final int REDO = 2;
+	private static final int SLOT_MASK = 0xFFFF;
+	private static final int END_OF_STEP = 1 << 16;
+	private static final int KIND_SHIFT = 17;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final Executor io;
+	private final PerryMetrics metrics;
+	private final SlotTable mirror;
+	private final int[] scratch;
+
+	// Undo history, oldest first; each step is (slot, old, new) triples
+	private final List<int[]> history = new ArrayList<>();
+	private int cursor;
+
+	// Logical file layout once every queued write has run
+	private long size;
+	private long generationStart;
+	private int tipHash;
+	private int recordsSinceCompaction;
+	private int replayedSteps;
+	private volatile boolean failed;
+
+	private ShadowJournal(Path file, FileChannel channel, Executor io, PerryMetrics metrics, int capacity) {
+		this.file = file;
+		this.channel = channel;
+		this.io = io;
+		this.metrics = metrics;
+		mirror = new SlotTable(capacity);
+		scratch = new int[capacity * 3];
+	}
+
+	/**
+	 * Opens or creates the journal and replays it onto {@code state}, the snapshot loaded from config.
+	 * @param stateHash {@link #hash(SlotTable)} of that snapshot
+	 * @param metrics receives the bytes of every append and compaction written
+	 */
+	static ShadowJournal open(Path file, SlotTable state, int stateHash, Executor io, PerryMetrics metrics) throws IOException {
+		Files.createDirectories(file.getParent());
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		ShadowJournal journal = new ShadowJournal(file, channel, io, metrics, state.capacity());
+		try {
+			journal.load(state, stateHash);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		journal.mirror.copyFrom(state);
+		return journal;
+	}
+
+	/** Hash of the snapshot as stored in config, used to tie the journal to it. */
+	static int hash(SlotTable state) {
+		return ShadowCodec.encode(state).hashCode();
+	}
+
+	private void load(SlotTable state, int stateHash) throws IOException {
+		long fileSize = channel.size();
+		ByteBuffer data = null;
+		if (fileSize >= HEADER_BYTES && fileSize <= MAX_FILE_BYTES) {
+			data = ByteBuffer.allocate((int) fileSize);
+			while (data.hasRemaining() && channel.read(data, data.position()) > 0) {
+				// Read the whole file
+			}
+			data.flip();
+		}
+		if (data == null || data.remaining() < HEADER_BYTES || data.getInt(0) != MAGIC
+				|| (data.getInt(4) != stateHash && data.getInt(8) != stateHash)) {
+			if (fileSize > 0) {
+				log.info("Discarding shadow journal {}; it doesn't match the saved layout.", file.getFileName());
+			}
+			reset(stateHash);
+			return;
+		}
+
+		long validEnd = HEADER_BYTES;
+		List<int[]> step = new ArrayList<>();
+		for (int pos = HEADER_BYTES; pos + RECORD_BYTES <= data.limit(); pos += RECORD_BYTES) {
+			int header = data.getInt(pos);
+			step.add(new int[]{header & SLOT_MASK, data.getInt(pos + 4), data.getInt(pos + 8)});
+			if ((header & END_OF_STEP) == 0) {
+				continue;
+			}
+			int[] flat = new int[step.size() * 3];
+			for (int i = 0; i < step.size(); i++) {
+				System.arraycopy(step.get(i), 0, flat, i * 3, 3);
+			}
+			step.clear();
+			replay(flat, header >>> KIND_SHIFT, state);
+			validEnd = pos + RECORD_BYTES;
+		}
+		if (validEnd < fileSize) {
+			log.warn("Shadow journal {} ends in an incomplete step; dropping {} bytes.", file.getFileName(), fileSize - validEnd);
+			channel.truncate(validEnd);
+		}
+		size = validEnd;
+		generationStart = HEADER_BYTES;
+		tipHash = data.getInt(8);
+		recordsSinceCompaction = (int) ((validEnd - HEADER_BYTES) / RECORD_BYTES);
+	}
+
+	private void replay(int[] step, int kind, SlotTable state) {
+		for (int i = 0; i < step.length; i += 3) {
+			if (step[i] < state.capacity()) {
+				state.put(step[i], step[i + 2]);
+			}
+		}
+		replayedSteps++;
+		if (kind == UNDO) {
+			cursor = Math.max(0, cursor - 1);
+		} else if (kind == REDO) {
+			cursor = Math.min(history.size(), cursor + 1);
+		} else {
+			push(step);
+		}
+	}
+
+	private void reset(int stateHash) throws IOException {
+		channel.truncate(0);
+		ByteBuffer header = header(stateHash, stateHash);
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		size = HEADER_BYTES;
+		generationStart = HEADER_BYTES;
+		tipHash = stateHash;
+		recordsSinceCompaction = 0;
+	}
+
+	/** Steps replayed from the file when it was opened. */
+	int replayedSteps() {
+		return replayedSteps;
+	}
+
+	boolean isFailed() {
+		return failed;
+	}
+
+	/** True once enough records piled up that the caller should store a snapshot and {@link #compact}. */
+	boolean needsCompaction() {
+		return recordsSinceCompaction >= COMPACT_AFTER_RECORDS;
+	}
+
+	boolean canUndo() {
+		return cursor > 0;
+	}
+
+	boolean canRedo() {
+		return cursor < history.size();
+	}
+
+	/**
+	 * Journals every slot that differs from the last journaled state as one step.
+	 * @return true if anything changed
+	 */
+	boolean record(SlotTable state) {
+		int length = diff(state);
+		if (length == 0) {
+			return false;
+		}
+		int[] step = new int[length];
+		System.arraycopy(scratch, 0, step, 0, length);
+		apply(step, false, mirror);
+		append(step, NORMAL);
+		push(step);
+		return true;
+	}
+
+	/** Reverts the last step in {@code state}; unjournaled changes are recorded first. */
+	boolean undo(SlotTable state) {
+		record(state);
+		if (!canUndo()) {
+			return false;
+		}
+		int[] step = history.get(--cursor);
+		apply(step, true, state);
+		apply(step, true, mirror);
+		append(inverse(step), UNDO);
+		return true;
+	}
+
+	/** Re-applies the last undone step; not possible once something else changed since the undo. */
+	boolean redo(SlotTable state) {
+		record(state); // A new change discards the redo history, like any editor
+		if (!canRedo()) {
+			return false;
+		}
+		int[] step = history.get(cursor++);
+		apply(step, false, state);
+		apply(step, false, mirror);
+		append(step, REDO);
+		return true;
+	}
+
+	/**
+	 * Call after storing the journaled state as the config snapshot. Keeps only the records since
+	 * the previous snapshot, so whichever of the two config ends up holding still replays correctly.
+	 * @param snapshotHash {@link #hash(SlotTable)} of the snapshot just stored
+	 */
+	void compact(int snapshotHash) {
+		long keepFrom = generationStart;
+		long keepTo = size;
+		int baseHash = tipHash;
+		long keptBytes = keepTo - keepFrom;
+		size = HEADER_BYTES + keptBytes;
+		generationStart = size;
+		tipHash = snapshotHash;
+		recordsSinceCompaction = 0;
+		io.execute(() -> {
+			if (failed) {
+				return;
+			}
+			try {
+				ByteBuffer kept = ByteBuffer.allocate((int) keptBytes);
+				while (kept.hasRemaining() && channel.read(kept, keepFrom + kept.position()) > 0) {
+					// Read the records being kept
+				}
+				kept.flip();
+				while (kept.hasRemaining()) {
+					channel.write(kept, HEADER_BYTES + kept.position());
+				}
+				channel.truncate(HEADER_BYTES + keptBytes);
+				ByteBuffer header = header(baseHash, snapshotHash);
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(false);
+				metrics.recordJournalWrite(HEADER_BYTES + (int) keptBytes);
+			} catch (IOException e) {
+				fail(e);
+			}
+		});
+	}
+
+	@Override
+	public void close() {
+		io.execute(() -> {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				log.warn("Could not close shadow journal {}", file.getFileName(), e);
+			}
+		});
+	}
+
+	private int diff(SlotTable state) {
+		int length = 0;
+		int limit = Math.min(state.capacity(), mirror.capacity());
+		for (int slot = 0; slot < limit; slot++) {
+			int before = mirror.get(slot);
+			int after = state.get(slot);
+			if (before != after) {
+				scratch[length++] = slot;
+				scratch[length++] = before;
+				scratch[length++] = after;
+			}
+		}
+		return length;
+	}
+
+	private void push(int[] step) {
+		while (history.size() > cursor) {
+			history.remove(history.size() - 1);
+		}
+		history.add(step);
+		if (history.size() > HISTORY_LIMIT) {
+			history.remove(0);
+		}
+		cursor = history.size();
+	}
+
+	private static void apply(int[] step, boolean backwards, SlotTable target) {
+		for (int i = 0; i < step.length; i += 3) {
+			target.put(step[i], step[i + (backwards ? 1 : 2)]);
+		}
+	}
+
+	private static int[] inverse(int[] step) {
+		int[] inverse = new int[step.length];
+		for (int i = 0; i < step.length; i += 3) {
+			inverse[i] = step[i];
+			inverse[i + 1] = step[i + 2];
+			inverse[i + 2] = step[i + 1];
+		}
+		return inverse;
+	}
+
+	private void append(int[] step, int kind) {
+		int records = step.length / 3;
+		ByteBuffer buffer = ByteBuffer.allocate(records * RECORD_BYTES);
+		for (int i = 0; i < step.length; i += 3) {
+			boolean last = i + 3 == step.length;
+			buffer.putInt(step[i] | (last ? END_OF_STEP | kind << KIND_SHIFT : 0));
+			buffer.putInt(step[i + 1]);
+			buffer.putInt(step[i + 2]);
+		}
+		buffer.flip();
+		long position = size;
+		int bytes = buffer.remaining();
+		size += bytes;
+		recordsSinceCompaction += records;
+		io.execute(() -> {
+			if (failed) {
+				return;
+			}
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, position + buffer.position());
+				}
+				metrics.recordJournalWrite(bytes);
+			} catch (IOException e) {
+				fail(e);
+			}
+		});
+	}
+
+	private void fail(IOException e) {
+		failed = true;
+		log.warn("Shadow journal {} write failed; falling back to full saves.", file.getFileName(), e);
+	}
+
+	private static ByteBuffer header(int baseHash, int tipHash) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC).putInt(baseHash).putInt(tipHash);
+		header.flip();
+		return header;
+	}
+}
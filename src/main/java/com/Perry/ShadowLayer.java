@@ -0,0 +1,109 @@
+package com.Perry;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * One translucent image holding every visible shadow, positioned over the inventory panel.
+ * <p>
+ * The layer is rebuilt only when the published {@link ShadowSnapshot}, the slot geometry or the
+ * sprite cache report a new version; otherwise a frame costs a single {@code drawImage}. The
+ * snapshot already resolves manual over automatic shadows, so each slot is composited at most once.
+ */
+public final class ShadowLayer {
+
+	/** Supplies the finished sprite for an item ID, or null if it isn't available. */
+	@FunctionalInterface
+	public interface SpriteSource {
+		BufferedImage get(int itemId);
+	}
+
+	private BufferedImage image;
+	private int originX;
+	private int originY;
+	private int shadowCount;
+
+	private boolean built;
+	private long snapshotVersion;
+	private int geometryVersion;
+	private int spriteVersion;
+
+	/** True if any input changed since the last {@link #rebuild}. */
+	public boolean isStale(ShadowSnapshot snapshot, SlotBounds bounds, int spriteVersion) {
+		return !built
+				|| snapshot.getVersion() != snapshotVersion
+				|| bounds.getVersion() != geometryVersion
+				|| spriteVersion != this.spriteVersion;
+	}
+
+	public void rebuild(ShadowSnapshot snapshot, SlotBounds bounds, SpriteSource sprites, int spriteVersion) {
+		built = true;
+		snapshotVersion = snapshot.getVersion();
+		geometryVersion = bounds.getVersion();
+		this.spriteVersion = spriteVersion;
+		shadowCount = 0;
+
+		int slots = snapshot.capacity();
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int slot = 0; slot < slots; slot++) {
+			if (!bounds.hasSlot(slot)) {
+				continue;
+			}
+			minX = Math.min(minX, bounds.getX(slot));
+			minY = Math.min(minY, bounds.getY(slot));
+			maxX = Math.max(maxX, bounds.getX(slot) + bounds.getWidth(slot));
+			maxY = Math.max(maxY, bounds.getY(slot) + bounds.getHeight(slot));
+		}
+		if (minX > maxX || minY > maxY) {
+			image = null;
+			return;
+		}
+
+		int width = maxX - minX;
+		int height = maxY - minY;
+		if (image == null || image.getWidth() != width || image.getHeight() != height) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		}
+		originX = minX;
+		originY = minY;
+
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, width, height);
+			g.setComposite(AlphaComposite.SrcOver);
+			for (int slot = 0; slot < slots; slot++) {
+				int itemId = snapshot.get(slot);
+				if (itemId == SlotTable.EMPTY || !bounds.hasSlot(slot)) {
+					continue;
+				}
+				BufferedImage sprite = sprites.get(itemId);
+				if (sprite == null) {
+					continue;
+				}
+				g.drawImage(sprite, bounds.getX(slot) - minX, bounds.getY(slot) - minY, null);
+				shadowCount++;
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/** Blits the layer; a no-op if there is nothing to show. */
+	public void draw(Graphics2D graphics) {
+		if (image != null && shadowCount > 0) {
+			graphics.drawImage(image, originX, originY, null);
+		}
+	}
+
+	/** Number of slots composited into the layer at the last rebuild. */
+	public int getShadowCount() {
+		return shadowCount;
+	}
+
+	/** Forces a rebuild on the next frame. */
+	public void invalidate() {
+		built = false;
+	}
+}
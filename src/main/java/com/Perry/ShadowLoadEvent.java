@@ -0,0 +1,31 @@
+package com.Perry;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR event covering one read and decode of the persisted automatic shadow state. */
+@Name("com.Perry.ShadowLoad")
+@Label("Shadow Load")
+@Description("Config read and decode of the automatic shadow state")
+@Category({"PerryVentory"})
+@StackTrace(false)
+class ShadowLoadEvent extends jdk.jfr.Event {
+
+	@Label("Bytes")
+	@DataAmount
+	int bytes;
+
+	@Label("Shadows")
+	int shadows;
+
+	@Label("Migrated From JSON")
+	boolean migrated;
+
+	@Label("Decoded Cache Hit")
+	@Description("Served from the in-memory cache of recently used profiles; no config read or decode")
+	boolean cacheHit;
+}
@@ -0,0 +1,441 @@
+package com.Perry;
+
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.config.ConfigManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind store for automatic shadow tables, one config key per tracked container.
+ * <p>
+ * Keys are scoped to the active RuneScape profile (one per account and profile type) and
+ * optionally to a world-type suffix, set through {@link #setScope(String, String)}. A layout saved
+ * under the old account-wide key is adopted by the first profile that loads without one. The
+ * last {@value #DECODED_CACHE_SIZE} decoded tables are kept in memory, so switching back to a
+ * recently used account or world type doesn't read or decode config again.
+ * <p>
+ * State is stored with {@link ShadowCodec}; values in the old Gson map format are migrated
+ * the first time they are loaded.
+ * <p>
+ * {@link #requestSave(String, SlotTable)} only copies the table into that key's pending buffer
+ * and, if no write is queued yet, schedules one after the configured coalescing window. Every
+ * change inside that window folds into the same write, which is serialised and handed to
+ * {@link ConfigManager} on the background executor. {@link #saveNow(String, SlotTable)} bypasses
+ * the window for shutdown, logout/hop and explicit clear actions.
+ */
+@Slf4j
+@Singleton
+public class ShadowPersistence {
+
+	static final String SHADOW_DATA_KEY = "reservedSlotsData";
+	static final int DECODED_CACHE_SIZE = 16;
+
+	private final ConfigManager configManager;
+	private final ScheduledExecutorService executor;
+	private final Gson legacyGson;
+	private final PerryMetrics metrics;
+
+	// Guarded by itself
+	private final Map<String, Store> stores = new HashMap<>();
+
+	// Decoded tables by store ID, least recently used first; guarded by itself
+	private final LinkedHashMap<String, SlotTable> decoded = new LinkedHashMap<String, SlotTable>(DECODED_CACHE_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SlotTable> eldest) {
+			return size() > DECODED_CACHE_SIZE;
+		}
+	};
+
+	// RuneLite RS profile key (null uses the account-wide config) and world-type key suffix
+	private volatile String profile;
+	private volatile String keySuffix = "";
+
+	// Coalescing window in ms, pushed by the plugin so saves don't go through the config proxy
+	private volatile long saveWindow;
+
+	/** Pending and last-written state of one config key within one profile. */
+	private static final class Store {
+		final String id;
+		final String profile;
+		final String key;
+
+		// Guarded by this
+		SlotTable pending;
+		boolean dirty;
+		ScheduledFuture<?> scheduledWrite;
+
+		// Guarded by writeLock
+		final Object writeLock = new Object();
+		SlotTable writeBuffer;
+		String lastWritten;
+
+		Store(String id, String profile, String key, int capacity) {
+			this.id = id;
+			this.profile = profile;
+			this.key = key;
+			pending = new SlotTable(capacity);
+			writeBuffer = new SlotTable(capacity);
+		}
+
+		/** Caller holds this. */
+		void stage(SlotTable state) {
+			if (pending.capacity() < state.capacity()) {
+				pending = new SlotTable(state.capacity());
+			}
+			pending.copyFrom(state);
+			dirty = true;
+		}
+	}
+
+	@Inject
+	public ShadowPersistence(ConfigManager configManager, ScheduledExecutorService executor, Gson gson, PerryMetrics metrics) {
+		this.configManager = configManager;
+		this.metrics = metrics;
+		this.executor = executor;
+		this.legacyGson = gson.newBuilder()
+				.registerTypeAdapter(SlotTable.class, new SlotTableTypeAdapter(PerryVentoryPlugin.INVENTORY_SIZE))
+				.create();
+	}
+
+	/**
+	 * Switches the profile and key suffix that later loads and saves use. Writes already staged
+	 * still go to the scope they were made in.
+	 * @return true if the scope changed
+	 */
+	public boolean setScope(String profile, String keySuffix) {
+		String suffix = keySuffix != null ? keySuffix : "";
+		if (Objects.equals(profile, this.profile) && suffix.equals(this.keySuffix)) {
+			return false;
+		}
+		this.profile = profile;
+		this.keySuffix = suffix;
+		log.debug("Shadow persistence scope set to profile {} suffix '{}'.", profile, suffix);
+		return true;
+	}
+
+	/** Approximate heap held by the decoded-table cache. */
+	public long decodedBytes() {
+		long bytes = 0;
+		synchronized (decoded) {
+			for (SlotTable table : decoded.values()) {
+				bytes += 4L * table.capacity();
+			}
+		}
+		return bytes;
+	}
+
+	/** Reads the shadows persisted under {@code key} in the current scope into {@code target}. Pending writes for the key are flushed first. */
+	public void load(String key, SlotTable target) {
+		Store store = store(key, target.capacity());
+		flush(store);
+		ShadowLoadEvent loadEvent = PerryJfr.shadowLoad ? new ShadowLoadEvent() : null;
+		if (loadEvent != null) {
+			loadEvent.begin();
+		}
+		try {
+			load(store, target, loadEvent);
+		} finally {
+			if (loadEvent != null) {
+				loadEvent.shadows = target.size();
+				loadEvent.commit();
+			}
+		}
+	}
+
+	/**
+	 * Copies the state under {@code key} from the decoded cache without touching config, for the
+	 * client thread. Pending writes don't matter: every save updates the cache first.
+	 * @return false, with {@code target} cleared, if it isn't cached; {@link #load} it off-thread then
+	 */
+	public boolean loadCached(String key, SlotTable target) {
+		Store store = store(key, target.capacity());
+		target.clear();
+		synchronized (decoded) {
+			SlotTable cached = decoded.get(store.id);
+			if (cached == null) {
+				return false;
+			}
+			target.copyFrom(cached);
+		}
+		if (PerryJfr.shadowLoad) {
+			ShadowLoadEvent loadEvent = new ShadowLoadEvent();
+			loadEvent.cacheHit = true;
+			loadEvent.shadows = target.size();
+			loadEvent.commit();
+		}
+		return true;
+	}
+
+	private void load(Store store, SlotTable target, ShadowLoadEvent loadEvent) {
+		target.clear();
+		synchronized (decoded) {
+			SlotTable cached = decoded.get(store.id);
+			if (cached != null) {
+				target.copyFrom(cached);
+				if (loadEvent != null) {
+					loadEvent.cacheHit = true;
+				}
+				log.debug("Loaded {} shadows for key {} from the decoded profile cache.", target.size(), store.key);
+				return;
+			}
+		}
+
+		String value;
+		boolean adoptGlobal = false;
+		log.debug("Attempting to load shadows using configManager.getConfiguration for key: {} (profile {})", store.key, store.profile);
+		try {
+			value = read(store.profile, store.key);
+			if ((value == null || value.isEmpty()) && store.profile != null && store.id.endsWith("\n" + SHADOW_DATA_KEY)) {
+				// Layouts saved before per-profile storage live in the account-wide key
+				value = read(null, store.key);
+				adoptGlobal = value != null && !value.isEmpty();
+			}
+		} catch (Exception e) { log.error("Error reading shadow data using getConfiguration", e); return; }
+
+		synchronized (store.writeLock) {
+			store.lastWritten = adoptGlobal ? null : value;
+		}
+		if (value == null || value.isEmpty()) {
+			log.debug("No previous shadow data found in standard config for key {}.", store.key);
+			remember(store.id, target);
+			return;
+		}
+		if (loadEvent != null) {
+			loadEvent.bytes = value.length();
+		}
+		try {
+			boolean legacyJson = ShadowCodec.isLegacyJson(value);
+			if (legacyJson) {
+				if (loadEvent != null) {
+					loadEvent.migrated = true;
+				}
+				SlotTable loaded = legacyGson.fromJson(value, SlotTable.class);
+				if (loaded == null) { log.warn("Deserialization of legacy shadow json resulted in a null table."); return; }
+				target.copyFrom(loaded);
+				log.info("Migrating {} shadows from the legacy JSON format.", target.size());
+			} else {
+				ShadowCodec.decode(value, target);
+			}
+			if (legacyJson || adoptGlobal) {
+				if (adoptGlobal) {
+					log.info("Moving the account-wide shadow layout to profile {}.", store.profile);
+				}
+				saveNow(store, target);
+			} else {
+				remember(store.id, target);
+			}
+			if (adoptGlobal) {
+				configManager.unsetConfiguration(PerryVentoryPlugin.CONFIG_GROUP, store.key);
+			}
+			log.info("Loaded {} shadows from standard config key {}.", target.size(), store.key);
+		} catch (Exception e) { log.error("Failed to decode shadow data from standard config key {}", store.key, e); }
+	}
+
+	/**
+	 * Decodes the state under {@code key} into the decoded cache unless it is already there, for
+	 * use off the client thread. A cached entry is never replaced, so this can't undo a save made
+	 * meanwhile; legacy values are decoded but only migrated by {@link #load}.
+	 * @return a copy of the cached state
+	 */
+	public SlotTable prefetch(String key, int capacity) {
+		Store store = store(key, capacity);
+		SlotTable state = new SlotTable(capacity);
+		synchronized (decoded) {
+			SlotTable cached = decoded.get(store.id);
+			if (cached != null) {
+				state.copyFrom(cached);
+				return state;
+			}
+		}
+		flush(store);
+		try {
+			String value = read(store.profile, store.key);
+			if (value != null && !value.isEmpty()) {
+				if (ShadowCodec.isLegacyJson(value)) {
+					SlotTable loaded = legacyGson.fromJson(value, SlotTable.class);
+					if (loaded != null) {
+						state.copyFrom(loaded);
+					}
+				} else {
+					ShadowCodec.decode(value, state);
+				}
+			}
+		} catch (Exception e) {
+			log.warn("Could not prefetch shadow data for key {}", store.key, e);
+			return state;
+		}
+		synchronized (decoded) {
+			SlotTable cached = decoded.get(store.id);
+			if (cached != null) {
+				state.copyFrom(cached); // Loaded or saved while we were decoding; that copy is newer
+			} else {
+				SlotTable copy = new SlotTable(capacity);
+				copy.copyFrom(state);
+				decoded.put(store.id, copy);
+			}
+		}
+		log.debug("Prefetched {} shadows for key {}.", state.size(), store.key);
+		return state;
+	}
+
+	/** Sets how long {@link #requestSave} waits for further changes before writing. */
+	public void setSaveWindow(long millis) {
+		saveWindow = Math.max(0, millis);
+	}
+
+	/** Marks the state dirty; the write happens on the executor once the coalescing window closes. */
+	public void requestSave(String key, SlotTable state) {
+		Store store = store(key, state.capacity());
+		remember(store.id, state);
+		synchronized (store) {
+			store.stage(state);
+			if (store.scheduledWrite != null) {
+				return; // Already queued, this change rides along
+			}
+			store.scheduledWrite = executor.schedule(() -> flush(store), saveWindow, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/** Stages the state and writes it immediately on the calling thread. */
+	public void saveNow(String key, SlotTable state) {
+		saveNow(store(key, state.capacity()), state);
+	}
+
+	private void saveNow(Store store, SlotTable state) {
+		remember(store.id, state);
+		synchronized (store) {
+			store.stage(state);
+		}
+		flush(store);
+	}
+
+	/** Writes every key's pending state now and cancels the queued writes. */
+	public void flush() {
+		List<Store> all;
+		synchronized (stores) {
+			all = new ArrayList<>(stores.values());
+		}
+		for (Store store : all) {
+			flush(store);
+		}
+	}
+
+	private Store store(String baseKey, int capacity) {
+		String currentProfile = profile;
+		String key = baseKey + keySuffix;
+		String id = (currentProfile != null ? currentProfile : "") + "\n" + key;
+		synchronized (stores) {
+			Store store = stores.get(id);
+			if (store == null) {
+				store = new Store(id, currentProfile, key, capacity);
+				stores.put(id, store);
+			}
+			return store;
+		}
+	}
+
+	// Keeps a decoded copy of the latest state for this store
+	private void remember(String id, SlotTable state) {
+		synchronized (decoded) {
+			SlotTable cached = decoded.get(id);
+			if (cached == null || cached.capacity() < state.capacity()) {
+				cached = new SlotTable(state.capacity());
+				decoded.put(id, cached);
+			}
+			cached.copyFrom(state);
+		}
+	}
+
+	private String read(String fromProfile, String key) {
+		return fromProfile != null
+				? configManager.getConfiguration(PerryVentoryPlugin.CONFIG_GROUP, fromProfile, key)
+				: configManager.getConfiguration(PerryVentoryPlugin.CONFIG_GROUP, key);
+	}
+
+	private void flush(Store store) {
+		synchronized (store.writeLock) {
+			synchronized (store) {
+				if (store.scheduledWrite != null) {
+					store.scheduledWrite.cancel(false);
+					store.scheduledWrite = null;
+				}
+				if (!store.dirty) {
+					return;
+				}
+				if (store.writeBuffer.capacity() < store.pending.capacity()) {
+					store.writeBuffer = new SlotTable(store.pending.capacity());
+				}
+				store.writeBuffer.copyFrom(store.pending);
+				store.dirty = false;
+			}
+			write(store);
+		}
+	}
+
+	private void write(Store store) {
+		SlotTable state = store.writeBuffer;
+		ShadowSaveEvent saveEvent = PerryJfr.shadowSave ? new ShadowSaveEvent() : null;
+		if (saveEvent != null) {
+			saveEvent.begin();
+		}
+		try {
+			write(store, state, saveEvent);
+		} finally {
+			if (saveEvent != null) {
+				saveEvent.shadows = state.size();
+				saveEvent.commit();
+			}
+		}
+	}
+
+	private void write(Store store, SlotTable state, ShadowSaveEvent saveEvent) {
+		if (state.isEmpty()) {
+			if (store.lastWritten == null) {
+				return;
+			}
+			log.debug("Shadow map empty. Unsetting standard configuration for key: {}", store.key);
+			try {
+				if (store.profile != null) {
+					configManager.unsetConfiguration(PerryVentoryPlugin.CONFIG_GROUP, store.profile, store.key);
+				} else {
+					configManager.unsetConfiguration(PerryVentoryPlugin.CONFIG_GROUP, store.key);
+				}
+				store.lastWritten = null;
+				metrics.recordSave(0);
+			} catch (Exception e) { log.error("Error unsetting shadow data standard config", e); }
+			return;
+		}
+		try {
+			String encoded = ShadowCodec.encode(state);
+			if (saveEvent != null) {
+				saveEvent.bytes = encoded.length();
+			}
+			if (encoded.equals(store.lastWritten)) {
+				log.trace("Shadow state unchanged since last write, skipping save.");
+				if (saveEvent != null) {
+					saveEvent.skipped = true;
+				}
+				return;
+			}
+			if (store.profile != null) {
+				configManager.setConfiguration(PerryVentoryPlugin.CONFIG_GROUP, store.profile, store.key, encoded);
+			} else {
+				configManager.setConfiguration(PerryVentoryPlugin.CONFIG_GROUP, store.key, encoded);
+			}
+			store.lastWritten = encoded;
+			metrics.recordSave(encoded.length());
+			log.debug("Saved {} shadows to standard config key {}.", state.size(), store.key);
+		} catch (Exception e) { log.error("Error saving shadow data to standard config. Map size: {}", state.size(), e); }
+	}
+}
@@ -0,0 +1,27 @@
+package com.Perry;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR event covering one write of the automatic shadow state to config. */
+@Name("com.Perry.ShadowSave")
+@Label("Shadow Save")
+@Description("Serialisation and config write of the automatic shadow state")
+@Category({"PerryVentory"})
+@StackTrace(false)
+class ShadowSaveEvent extends jdk.jfr.Event {
+
+	@Label("Bytes")
+	@DataAmount
+	int bytes;
+
+	@Label("Shadows")
+	int shadows;
+
+	@Label("Skipped (Unchanged)")
+	boolean skipped;
+}
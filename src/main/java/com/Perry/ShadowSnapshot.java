@@ -0,0 +1,121 @@
+package com.Perry;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, resolved view of the shadows to draw: one item ID per slot, manual shadows already
+ * taking precedence over automatic ones.
+ * <p>
+ * Built by {@link ShadowEngine#publish()} on the client thread and handed to the render thread
+ * through a single volatile reference, so a reader always sees one complete state. A new
+ * snapshot gets a new {@link #getVersion() version}; equal versions mean equal content.
+ * Besides slot -> item lookups it carries a small hash set of the shadowed item IDs, so
+ * {@link #isShadowed(int)} is O(1) from any thread.
+ */
+public final class ShadowSnapshot {
+
+	/** The state before anything has been published. */
+	public static final ShadowSnapshot EMPTY = new ShadowSnapshot(0, new int[0], 0);
+
+	private final long version;
+	private final int[] itemIds;
+	private final int count;
+	// Open-addressing set of shadowed item IDs, EMPTY marks a free bucket
+	private final int[] itemSet;
+
+	private ShadowSnapshot(long version, int[] itemIds, int count) {
+		this.version = version;
+		this.itemIds = itemIds;
+		this.count = count;
+		itemSet = new int[Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1];
+		Arrays.fill(itemSet, SlotTable.EMPTY);
+		int mask = itemSet.length - 1;
+		for (int itemId : itemIds) {
+			if (itemId == SlotTable.EMPTY) {
+				continue;
+			}
+			int bucket = mix(itemId) & mask;
+			while (itemSet[bucket] != SlotTable.EMPTY && itemSet[bucket] != itemId) {
+				bucket = (bucket + 1) & mask;
+			}
+			itemSet[bucket] = itemId;
+		}
+	}
+
+	/** Resolves manual over automatic shadows into a new snapshot. */
+	static ShadowSnapshot resolve(long version, SlotTable auto, SlotTable manual) {
+		int capacity = Math.max(auto.capacity(), manual.capacity());
+		int[] itemIds = new int[capacity];
+		int count = 0;
+		for (int slot = 0; slot < capacity; slot++) {
+			int itemId = slot < manual.capacity() ? manual.get(slot) : SlotTable.EMPTY;
+			if (itemId == SlotTable.EMPTY && slot < auto.capacity()) {
+				itemId = auto.get(slot);
+			}
+			itemIds[slot] = itemId;
+			if (itemId != SlotTable.EMPTY) {
+				count++;
+			}
+		}
+		return new ShadowSnapshot(version, itemIds, count);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/** Number of slots the snapshot covers. */
+	public int capacity() {
+		return itemIds.length;
+	}
+
+	/** Approximate heap held by the snapshot's arrays. */
+	public long retainedBytes() {
+		return 4L * (itemIds.length + itemSet.length);
+	}
+
+	/** Number of slots holding a shadow. */
+	public int size() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/** True if any slot shadows the item, manual or automatic. */
+	public boolean isShadowed(int itemId) {
+		if (itemId == SlotTable.EMPTY) {
+			return false;
+		}
+		int mask = itemSet.length - 1;
+		int bucket = mix(itemId) & mask;
+		while (itemSet[bucket] != SlotTable.EMPTY) {
+			if (itemSet[bucket] == itemId) {
+				return true;
+			}
+			bucket = (bucket + 1) & mask;
+		}
+		return false;
+	}
+
+	/** The shadowed item ID for a slot, or {@link SlotTable#EMPTY}. */
+	public int get(int slot) {
+		return slot >= 0 && slot < itemIds.length ? itemIds[slot] : SlotTable.EMPTY;
+	}
+
+	/** The first slot at or after {@code from} holding a shadow, or -1; iterates like {@link SlotTable#nextSlot}. */
+	public int nextSlot(int from) {
+		for (int slot = Math.max(from, 0); slot < itemIds.length; slot++) {
+			if (itemIds[slot] != SlotTable.EMPTY) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private static int mix(int value) {
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
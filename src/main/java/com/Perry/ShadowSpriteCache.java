@@ -0,0 +1,259 @@
+package com.Perry;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.util.AsyncBufferedImage;
+import net.runelite.client.util.ImageUtil;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of finished shadow sprites, keyed by (item ID, colour, style).
+ * <p>
+ * Tint, greyscale, outline and opacity are baked into each sprite once, so the overlay can draw
+ * it with a plain {@code drawImage} and no composite changes. The cache is capped by pixel memory
+ * rather than entry count. Sprites built before the item image finished loading are evicted when
+ * it arrives, and {@link #getVersion()} is bumped whenever cached content changes.
+ * <p>
+ * All methods are safe from any thread: cache state is guarded by this, and {@link ItemManager#getImage}
+ * loads images on the client thread itself.
+ */
+@Slf4j
+@Singleton
+public class ShadowSpriteCache {
+
+	static final long MAX_BYTES = 4L * 1024 * 1024;
+	private static final float TINT_STRENGTH = 0.6f;
+	private static final Color DEFAULT_COLOR = new Color(0, 0, 0, 128);
+
+	private final ItemManager itemManager;
+	private final PerryVentoryConfig config;
+
+	// Guarded by this
+	private final LinkedHashMap<Long, BufferedImage> sprites = new LinkedHashMap<>(64, 0.75f, true);
+	private long bytes;
+	private Color color;
+	private ShadowStyle style;
+
+	private volatile int version;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	@Inject
+	public ShadowSpriteCache(ItemManager itemManager, PerryVentoryConfig config) {
+		this.itemManager = itemManager;
+		this.config = config;
+	}
+
+	/** Incremented whenever cached sprites are invalidated or replaced. */
+	public int getVersion() {
+		return version;
+	}
+
+	/** Pixel memory held by cached sprites. */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/** Total cache hits since startup. */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/** Total cache misses (sprite builds) since startup. */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/** Returns the finished shadow sprite for an item, building it on a miss. Null if no image exists. */
+	public BufferedImage get(int itemId) {
+		Color currentColor;
+		ShadowStyle currentStyle;
+		BufferedImage cached;
+		synchronized (this) {
+			if (style == null) {
+				loadStyle();
+			}
+			currentColor = color;
+			currentStyle = style;
+			cached = sprites.get(key(itemId, currentColor, currentStyle));
+		}
+		// Counted outside the lock; the HUD and render events read them without taking it
+		if (cached != null) {
+			hits.increment();
+			return cached;
+		}
+		misses.increment();
+
+		BufferedImage itemImage = itemManager.getImage(itemId);
+		if (itemImage == null) {
+			return null;
+		}
+		final long key = key(itemId, currentColor, currentStyle);
+		final BufferedImage[] built = new BufferedImage[1];
+		if (itemImage instanceof AsyncBufferedImage) {
+			// Registered before building so a sprite made from a still-blank image gets replaced;
+			// runs at once (and finds nothing built yet) if the image had already loaded
+			((AsyncBufferedImage) itemImage).onLoaded(() -> evict(key, built[0]));
+		}
+		BufferedImage sprite = buildSprite(itemImage, currentStyle, currentColor);
+		built[0] = sprite;
+		store(key, sprite, currentColor, currentStyle);
+		return sprite;
+	}
+
+	/**
+	 * Requests the item image of every shadow in the table ahead of the first frame that draws them.
+	 * Each sprite is built once its image has loaded, never from a blank one, so a prewarmed sprite
+	 * is always the final one. Intended for the executor.
+	 */
+	public void prewarm(SlotTable shadows) {
+		for (int slot = shadows.nextSlot(0); slot != -1; slot = shadows.nextSlot(slot + 1)) {
+			prewarm(shadows.get(slot));
+		}
+	}
+
+	private void prewarm(int itemId) {
+		Color currentColor;
+		ShadowStyle currentStyle;
+		synchronized (this) {
+			if (style == null) {
+				loadStyle();
+			}
+			currentColor = color;
+			currentStyle = style;
+			if (sprites.containsKey(key(itemId, currentColor, currentStyle))) {
+				return;
+			}
+		}
+		BufferedImage itemImage = itemManager.getImage(itemId);
+		if (itemImage == null) {
+			return;
+		}
+		long key = key(itemId, currentColor, currentStyle);
+		Runnable build = () -> store(key, buildSprite(itemImage, currentStyle, currentColor), currentColor, currentStyle);
+		if (itemImage instanceof AsyncBufferedImage) {
+			((AsyncBufferedImage) itemImage).onLoaded(build); // Runs at once if it has already loaded
+		} else {
+			build.run();
+		}
+	}
+
+	// Caches a sprite unless the colour or style changed while it was built
+	private void store(long key, BufferedImage sprite, Color builtColor, ShadowStyle builtStyle) {
+		synchronized (this) {
+			if (!builtColor.equals(color) || builtStyle != style) {
+				return;
+			}
+			BufferedImage previous = sprites.put(key, sprite);
+			if (previous != null) {
+				bytes -= sizeOf(previous);
+			}
+			bytes += sizeOf(sprite);
+			trim();
+			if (previous != null && previous != sprite) {
+				version++; // Frames may have drawn the one it replaced
+			}
+		}
+	}
+
+	/** Drops every sprite and re-reads colour/style; call when either setting changes. */
+	public void invalidateAll() {
+		synchronized (this) {
+			sprites.clear();
+			bytes = 0;
+			style = null;
+			version++;
+		}
+		log.debug("Shadow sprite cache invalidated.");
+	}
+
+	// Drops a sprite built from a then-blank image, unless it was already replaced by a good one
+	private void evict(long key, BufferedImage built) {
+		synchronized (this) {
+			if (built == null || sprites.get(key) != built) {
+				return;
+			}
+			sprites.remove(key);
+			bytes -= sizeOf(built);
+			version++;
+		}
+	}
+
+	private void loadStyle() {
+		Color configured = config.shadowColor();
+		color = configured != null ? configured : DEFAULT_COLOR;
+		ShadowStyle configuredStyle = config.shadowStyle();
+		style = configuredStyle != null ? configuredStyle : ShadowStyle.FADED;
+	}
+
+	private void trim() {
+		Iterator<Map.Entry<Long, BufferedImage>> it = sprites.entrySet().iterator();
+		while (bytes > MAX_BYTES && it.hasNext()) {
+			bytes -= sizeOf(it.next().getValue());
+			it.remove();
+		}
+	}
+
+	private static long key(int itemId, Color color, ShadowStyle style) {
+		return ((long) color.getRGB() << 32) | ((long) style.ordinal() << 30) | (itemId & 0x3FFFFFFFL);
+	}
+
+	private static long sizeOf(BufferedImage image) {
+		return 4L * image.getWidth() * image.getHeight();
+	}
+
+	static BufferedImage buildSprite(BufferedImage itemImage, ShadowStyle style, Color color) {
+		float alpha = Math.max(0.0f, Math.min(1.0f, color.getAlpha() / 255.0f));
+		Color opaque = new Color(color.getRed(), color.getGreen(), color.getBlue());
+		BufferedImage shape;
+		switch (style) {
+			case TINT:
+				shape = copy(itemImage);
+				Graphics2D tint = shape.createGraphics();
+				tint.setComposite(AlphaComposite.SrcAtop.derive(TINT_STRENGTH));
+				tint.setColor(opaque);
+				tint.fillRect(0, 0, shape.getWidth(), shape.getHeight());
+				tint.dispose();
+				break;
+			case GREYSCALE:
+				shape = ImageUtil.grayscaleImage(itemImage);
+				break;
+			case OUTLINE:
+				shape = copy(ImageUtil.outlineImage(itemImage, opaque));
+				Graphics2D cut = shape.createGraphics();
+				cut.setComposite(AlphaComposite.DstOut);
+				cut.drawImage(itemImage, 0, 0, null);
+				cut.dispose();
+				break;
+			case FADED:
+			default:
+				shape = itemImage;
+				break;
+		}
+
+		BufferedImage sprite = new BufferedImage(shape.getWidth(), shape.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = sprite.createGraphics();
+		g.setComposite(AlphaComposite.SrcOver.derive(alpha));
+		g.drawImage(shape, 0, 0, null);
+		g.dispose();
+		return sprite;
+	}
+
+	private static BufferedImage copy(BufferedImage image) {
+		BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = copy.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return copy;
+	}
+}
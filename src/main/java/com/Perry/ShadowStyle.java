@@ -0,0 +1,23 @@
+package com.Perry;
+
+import lombok.Getter;
+
+/** How a shadow sprite is derived from the item image. */
+public enum ShadowStyle {
+	FADED("Faded"),
+	TINT("Tinted"),
+	GREYSCALE("Greyscale"),
+	OUTLINE("Outline");
+
+	@Getter
+	private final String displayName;
+
+	ShadowStyle(String displayName) {
+		this.displayName = displayName;
+	}
+
+	@Override
+	public String toString() {
+		return displayName;
+	}
+}
@@ -0,0 +1,18 @@
+package com.Perry;
+
+/** Canvas rectangles of a container's slots, as consumed by {@link ShadowLayer}. */
+public interface SlotBounds {
+
+	boolean hasSlot(int slot);
+
+	int getX(int slot);
+
+	int getY(int slot);
+
+	int getWidth(int slot);
+
+	int getHeight(int slot);
+
+	/** Changes whenever any rectangle may have moved. */
+	int getVersion();
+}
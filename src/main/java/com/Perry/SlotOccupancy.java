@@ -0,0 +1,203 @@
+package com.Perry;
+
+import java.util.Arrays;
+
+/**
+ * Real-item and automatic-shadow occupancy of a container as bitmasks, one bit per slot, with
+ * the free-slot queries used to relocate displaced shadows. A slot is free if it holds neither.
+ * <p>
+ * Containers of up to 64 slots (the inventory has 28) keep each mask in a single {@code long}.
+ * Their queries are a few bit operations: the slots at each grid distance from every origin are
+ * precomputed as masks, so the nearest free slot is the first distance ring that intersects the
+ * free mask, and the nearest one in a column is the closest set bit on either side of the origin.
+ * Larger containers (the bank) use {@code long[]} words and scan them a word at a time.
+ * <p>
+ * Distance is Manhattan distance on the grid, as for {@link ShadowIndex#nearest}; with no grid
+ * columns slots form a plain list. Ties go to the lower slot.
+ */
+final class SlotOccupancy {
+
+	private final int capacity;
+	private final int columns;
+	private final long[] items;
+	private final long[] shadows;
+
+	// Single-word grids only: slots at distance d from slot s are rings[s * ringCount + d]
+	private final long[] rings;
+	private final int ringCount;
+	private final long[] columnMasks;
+
+	/**
+	 * @param columns width of the slot grid, 0 for a plain list
+	 */
+	SlotOccupancy(int capacity, int columns) {
+		this.capacity = capacity;
+		this.columns = columns;
+		int words = Math.max(1, (capacity + 63) >>> 6);
+		items = new long[words];
+		shadows = new long[words];
+		if (words == 1 && columns > 0) {
+			int rows = (capacity + columns - 1) / columns;
+			ringCount = rows + columns - 1;
+			rings = new long[capacity * ringCount];
+			columnMasks = new long[columns];
+			for (int origin = 0; origin < capacity; origin++) {
+				for (int slot = 0; slot < capacity; slot++) {
+					rings[origin * ringCount + distance(origin, slot)] |= 1L << slot;
+				}
+			}
+			for (int slot = 0; slot < capacity; slot++) {
+				columnMasks[slot % columns] |= 1L << slot;
+			}
+		} else {
+			ringCount = 0;
+			rings = null;
+			columnMasks = null;
+		}
+	}
+
+	/** Approximate heap held by the masks (array payloads only). */
+	long retainedBytes() {
+		long longs = items.length + shadows.length
+				+ (rings != null ? rings.length : 0) + (columnMasks != null ? columnMasks.length : 0);
+		return 8 * longs;
+	}
+
+	void setItem(int slot, boolean occupied) {
+		set(items, slot, occupied);
+	}
+
+	void setShadow(int slot, boolean occupied) {
+		set(shadows, slot, occupied);
+	}
+
+	void clearShadows() {
+		Arrays.fill(shadows, 0);
+	}
+
+	boolean isFree(int slot) {
+		return slot >= 0 && slot < capacity && (free(slot >>> 6, capacity) & (1L << slot)) != 0;
+	}
+
+	/** The free slot below {@code limit} nearest to {@code origin}, or -1 if there is none. */
+	int nearestFree(int origin, int limit) {
+		if (rings != null) {
+			long free = free(0, limit);
+			if (free == 0) {
+				return -1;
+			}
+			int base = origin * ringCount;
+			for (int d = 0; d < ringCount; d++) {
+				long hit = free & rings[base + d];
+				if (hit != 0) {
+					return Long.numberOfTrailingZeros(hit);
+				}
+			}
+			return -1;
+		}
+		if (columns <= 0) {
+			return nearestInList(origin, limit);
+		}
+		return scan(origin, limit, false);
+	}
+
+	/** The free slot below {@code limit} in {@code origin}'s column nearest to it, or -1. A plain list is one column. */
+	int nearestFreeInColumn(int origin, int limit) {
+		if (columns <= 0) {
+			return nearestInList(origin, limit);
+		}
+		if (columnMasks != null) {
+			return nearestBit(free(0, limit) & columnMasks[origin % columns], origin);
+		}
+		return scan(origin, limit, true);
+	}
+
+	// Free bits of one word, restricted to slots below limit
+	private long free(int word, int limit) {
+		int bits = limit - (word << 6);
+		if (bits <= 0) {
+			return 0;
+		}
+		long mask = bits >= 64 ? -1L : (1L << bits) - 1;
+		return ~(items[word] | shadows[word]) & mask;
+	}
+
+	// Closest set bit to origin in a single word; on a column mask that is the closest row
+	private static int nearestBit(long bits, int origin) {
+		if (bits == 0) {
+			return -1;
+		}
+		long above = bits & (-1L << origin);
+		long below = bits & ((1L << origin) - 1);
+		int up = above == 0 ? -1 : Long.numberOfTrailingZeros(above);
+		int down = below == 0 ? -1 : 63 - Long.numberOfLeadingZeros(below);
+		if (up == -1 || down == -1) {
+			return up == -1 ? down : up;
+		}
+		return origin - down <= up - origin ? down : up;
+	}
+
+	// Plain list: the first free slot at or after origin and the last one before it, a word at a time
+	private int nearestInList(int origin, int limit) {
+		int originWord = origin >>> 6;
+		int up = -1;
+		for (int word = originWord; word < items.length && up == -1; word++) {
+			long free = free(word, limit);
+			if (word == originWord) {
+				free &= -1L << origin;
+			}
+			if (free != 0) {
+				up = (word << 6) + Long.numberOfTrailingZeros(free);
+			}
+		}
+		int down = -1;
+		for (int word = originWord; word >= 0 && down == -1; word--) {
+			long free = free(word, limit);
+			if (word == originWord) {
+				free &= (1L << origin) - 1;
+			}
+			if (free != 0) {
+				down = (word << 6) + 63 - Long.numberOfLeadingZeros(free);
+			}
+		}
+		if (up == -1 || down == -1) {
+			return up == -1 ? down : up;
+		}
+		return origin - down <= up - origin ? down : up;
+	}
+
+	// Multi-word grid: visits every free slot, in ascending order so ties keep the lower one
+	private int scan(int origin, int limit, boolean sameColumn) {
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int word = 0; word < items.length; word++) {
+			for (long free = free(word, limit); free != 0; free &= free - 1) {
+				int slot = (word << 6) + Long.numberOfTrailingZeros(free);
+				if (sameColumn && slot % columns != origin % columns) {
+					continue;
+				}
+				int distance = distance(origin, slot);
+				if (distance < bestDistance) {
+					best = slot;
+					bestDistance = distance;
+				}
+			}
+		}
+		return best;
+	}
+
+	private int distance(int a, int b) {
+		if (columns <= 0) {
+			return Math.abs(a - b);
+		}
+		return Math.abs(a / columns - b / columns) + Math.abs(a % columns - b % columns);
+	}
+
+	private static void set(long[] mask, int slot, boolean occupied) {
+		if (occupied) {
+			mask[slot >>> 6] |= 1L << slot;
+		} else {
+			mask[slot >>> 6] &= ~(1L << slot);
+		}
+	}
+}
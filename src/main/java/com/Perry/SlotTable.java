@@ -0,0 +1,137 @@
+package com.Perry;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size slot -> item ID table backed by a flat int array.
+ * Empty slots hold {@link #EMPTY}, so lookups, updates and iteration never box or allocate.
+ * Not thread-safe; callers mutate it from the client thread.
+ */
+public final class SlotTable {
+
+	/** Sentinel stored in a slot that holds no item / no shadow. */
+	public static final int EMPTY = -1;
+
+	/** Callback used by {@link #forEach(SlotConsumer)}. */
+	@FunctionalInterface
+	public interface SlotConsumer {
+		void accept(int slot, int itemId);
+	}
+
+	private final int[] items;
+	private int size;
+	private int version;
+
+	public SlotTable(int capacity) {
+		items = new int[capacity];
+		Arrays.fill(items, EMPTY);
+	}
+
+	public int capacity() {
+		return items.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Incremented on every change to the table's contents; lets readers detect staleness cheaply. */
+	public int getVersion() {
+		return version;
+	}
+
+	/** Returns the item ID in the slot, or {@link #EMPTY} if the slot is empty or out of range. */
+	public int get(int slot) {
+		return (slot >= 0 && slot < items.length) ? items[slot] : EMPTY;
+	}
+
+	public boolean contains(int slot) {
+		return get(slot) != EMPTY;
+	}
+
+	/**
+	 * Stores an item ID in the slot. Putting {@link #EMPTY} clears it.
+	 * @return the previous item ID, or {@link #EMPTY}
+	 */
+	public int put(int slot, int itemId) {
+		if (slot < 0 || slot >= items.length) {
+			throw new IndexOutOfBoundsException("Slot " + slot + " outside table of " + items.length);
+		}
+		int previous = items[slot];
+		if (previous == itemId) {
+			return previous;
+		}
+		version++;
+		if (previous == EMPTY && itemId != EMPTY) {
+			size++;
+		} else if (previous != EMPTY && itemId == EMPTY) {
+			size--;
+		}
+		items[slot] = itemId;
+		return previous;
+	}
+
+	/** @return the removed item ID, or {@link #EMPTY} if the slot was already empty */
+	public int remove(int slot) {
+		if (slot < 0 || slot >= items.length) {
+			return EMPTY;
+		}
+		return put(slot, EMPTY);
+	}
+
+	public void clear() {
+		if (size != 0) {
+			Arrays.fill(items, EMPTY);
+			size = 0;
+			version++;
+		}
+	}
+
+	/** Replaces this table's contents with another table's (capacities may differ; extra slots are dropped). */
+	public void copyFrom(SlotTable other) {
+		clear();
+		int limit = Math.min(items.length, other.items.length);
+		for (int slot = 0; slot < limit; slot++) {
+			if (other.items[slot] != EMPTY) {
+				put(slot, other.items[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Allocation-free iteration: {@code for (int s = t.nextSlot(0); s != -1; s = t.nextSlot(s + 1))}.
+	 * @return the first occupied slot at or after {@code from}, or -1 if there is none
+	 */
+	public int nextSlot(int from) {
+		for (int slot = Math.max(from, 0); slot < items.length; slot++) {
+			if (items[slot] != EMPTY) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	public void forEach(SlotConsumer consumer) {
+		for (int slot = 0; slot < items.length; slot++) {
+			if (items[slot] != EMPTY) {
+				consumer.accept(slot, items[slot]);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int slot = nextSlot(0); slot != -1; slot = nextSlot(slot + 1)) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(slot).append('=').append(items[slot]);
+		}
+		return sb.append('}').toString();
+	}
+}
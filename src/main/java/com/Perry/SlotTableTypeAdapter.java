@@ -0,0 +1,53 @@
+package com.Perry;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson adapter that reads and writes a {@link SlotTable} as the legacy {"slot": itemId} object
+ * the plugin persisted before {@link ShadowCodec}, so old saved data can still be migrated.
+ */
+public class SlotTableTypeAdapter extends TypeAdapter<SlotTable> {
+
+	private final int capacity;
+
+	public SlotTableTypeAdapter(int capacity) {
+		this.capacity = capacity;
+	}
+
+	@Override
+	public void write(JsonWriter out, SlotTable table) throws IOException {
+		if (table == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		for (int slot = table.nextSlot(0); slot != -1; slot = table.nextSlot(slot + 1)) {
+			out.name(Integer.toString(slot)).value(table.get(slot));
+		}
+		out.endObject();
+	}
+
+	@Override
+	public SlotTable read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		SlotTable table = new SlotTable(capacity);
+		in.beginObject();
+		while (in.hasNext()) {
+			int slot = Integer.parseInt(in.nextName());
+			int itemId = in.nextInt();
+			if (slot >= 0 && slot < capacity && itemId != SlotTable.EMPTY) {
+				table.put(slot, itemId);
+			}
+		}
+		in.endObject();
+		return table;
+	}
+}
@@ -0,0 +1,44 @@
+package com.Perry;
+
+import lombok.Getter;
+import net.runelite.api.InventoryID;
+
+/**
+ * Item containers that can hold automatic shadows, each with its own engine and persisted key.
+ * The inventory keeps the original key so existing saved layouts carry over. Engines grow to a
+ * container's size if it is larger than the default capacity. The bank is compacting: its engine
+ * treats withdrawals and deposits as shifts (see {@link ShadowEngine}), and its shadows are drawn by
+ * {@link BankShadowOverlay}. Worn equipment isn't tracked, since every item has a fixed slot there.
+ */
+public enum TrackedContainer {
+	INVENTORY(InventoryID.INVENTORY, PerryVentoryPlugin.INVENTORY_SIZE, ShadowPersistence.SHADOW_DATA_KEY, false),
+	BANK(InventoryID.BANK, 1420, "bankShadowData", true);
+
+	private static final TrackedContainer[] VALUES = values();
+
+	@Getter
+	private final InventoryID inventoryId;
+	@Getter
+	private final int defaultCapacity;
+	@Getter
+	private final String dataKey;
+	@Getter
+	private final boolean compacting;
+
+	TrackedContainer(InventoryID inventoryId, int defaultCapacity, String dataKey, boolean compacting) {
+		this.inventoryId = inventoryId;
+		this.defaultCapacity = defaultCapacity;
+		this.dataKey = dataKey;
+		this.compacting = compacting;
+	}
+
+	/** The tracked container with the given container ID, or null. */
+	public static TrackedContainer forContainerId(int containerId) {
+		for (TrackedContainer container : VALUES) {
+			if (container.inventoryId.getId() == containerId) {
+				return container;
+			}
+		}
+		return null;
+	}
+}
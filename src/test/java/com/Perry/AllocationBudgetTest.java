@@ -0,0 +1,313 @@
+package com.Perry;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the bytes allocated per inventory event and per overlay frame, measured with the JVM's
+ * per-thread allocation counter. Each case warms up first so class loading and JIT compilation
+ * aren't charged to it, then averages over thousands of operations.
+ * <p>
+ * Budgets sit well above the current figures, to absorb noise (escape analysis differs between
+ * JVMs and tiers) while still failing once a hot path allocates per slot or per item again.
+ */
+public class AllocationBudgetTest
+{
+	private static final int SIZE = PerryVentoryPlugin.INVENTORY_SIZE;
+	private static final int EVENTS = 5_000;
+	private static final int FRAMES = 5_000;
+	private static final int REBUILDS = 1_000;
+	private static final int WARMUP_ROUNDS = 3;
+
+	// Bytes per operation. A changed event publishes one immutable ShadowSnapshot (two small int arrays);
+	// anything per slot or per item on top of that, boxed or in a collection, breaks the budget.
+	private static final long EVENT_BUDGET = 384;
+	private static final long UNCHANGED_EVENT_BUDGET = 8;
+	private static final long CACHED_FRAME_BUDGET = 16;
+	private static final long REBUILT_FRAME_BUDGET = 4096;
+
+	/** Fixed-mode inventory slot positions: 4 columns of 42px, 7 rows of 36px. */
+	private static final SlotBounds FIXED_INVENTORY = new SlotBounds()
+	{
+		@Override
+		public boolean hasSlot(int slot)
+		{
+			return slot >= 0 && slot < SIZE;
+		}
+
+		@Override
+		public int getX(int slot)
+		{
+			return 563 + (slot % 4) * 42;
+		}
+
+		@Override
+		public int getY(int slot)
+		{
+			return 213 + (slot / 4) * 36;
+		}
+
+		@Override
+		public int getWidth(int slot)
+		{
+			return 36;
+		}
+
+		@Override
+		public int getHeight(int slot)
+		{
+			return 32;
+		}
+
+		@Override
+		public int getVersion()
+		{
+			return 1;
+		}
+	};
+
+	private com.sun.management.ThreadMXBean threads;
+
+	@Before
+	public void setUp()
+	{
+		threads = threadBean();
+		assumeTrue("Thread allocation accounting unsupported", threads != null);
+	}
+
+	@Test
+	public void inventoryEventsStayWithinBudget()
+	{
+		int[][] layouts = events(EVENTS, 42);
+		ShadowEngine engine = new ShadowEngine(SIZE, 4, id -> id);
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+		{
+			replay(engine, layouts);
+		}
+		long before = allocated();
+		int changes = replay(engine, layouts);
+		long perEvent = (allocated() - before) / layouts.length;
+
+		assertTrue("Synthetic stream should change shadows", changes > EVENTS / 10);
+		assertWithin("ShadowEngine.apply", perEvent, EVENT_BUDGET);
+	}
+
+	@Test
+	public void unchangedEventsAllocateNothing()
+	{
+		// Item containers fire for stack size changes too; those must stop at the fingerprint check
+		int[][] layouts = events(1, 7);
+		int[][] repeats = new int[EVENTS][];
+		Arrays.fill(repeats, layouts[1]);
+		repeats[0] = layouts[0];
+		ShadowEngine engine = new ShadowEngine(SIZE, 4, id -> id);
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+		{
+			replay(engine, repeats);
+		}
+		long skippedBefore = engine.getEventsSkipped();
+		long before = allocated();
+		replay(engine, repeats);
+		long perEvent = (allocated() - before) / repeats.length;
+
+		assertTrue(engine.getEventsSkipped() - skippedBefore >= EVENTS - 2);
+		assertWithin("Unchanged ShadowEngine.apply", perEvent, UNCHANGED_EVENT_BUDGET);
+	}
+
+	@Test
+	public void cachedFramesStayWithinBudget()
+	{
+		ShadowSnapshot snapshot = snapshot(SIZE / 2);
+		BufferedImage sprite = sprite();
+		ShadowLayer layer = new ShadowLayer();
+		BufferedImage canvas = new BufferedImage(765, 503, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = canvas.createGraphics();
+		try
+		{
+			for (int i = 0; i < WARMUP_ROUNDS; i++)
+			{
+				frames(layer, snapshot, sprite, graphics, FRAMES, false);
+			}
+			long before = allocated();
+			frames(layer, snapshot, sprite, graphics, FRAMES, false);
+			long perFrame = (allocated() - before) / FRAMES;
+
+			assertTrue(layer.getShadowCount() > 0);
+			assertWithin("Cached overlay frame", perFrame, CACHED_FRAME_BUDGET);
+		}
+		finally
+		{
+			graphics.dispose();
+		}
+	}
+
+	@Test
+	public void rebuiltFramesStayWithinBudget()
+	{
+		ShadowSnapshot snapshot = snapshot(SIZE);
+		BufferedImage sprite = sprite();
+		ShadowLayer layer = new ShadowLayer();
+		BufferedImage canvas = new BufferedImage(765, 503, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = canvas.createGraphics();
+		try
+		{
+			for (int i = 0; i < WARMUP_ROUNDS; i++)
+			{
+				frames(layer, snapshot, sprite, graphics, REBUILDS, true);
+			}
+			long before = allocated();
+			frames(layer, snapshot, sprite, graphics, REBUILDS, true);
+			long perFrame = (allocated() - before) / REBUILDS;
+
+			assertTrue(layer.getShadowCount() == SIZE);
+			assertWithin("Rebuilt overlay frame", perFrame, REBUILT_FRAME_BUDGET);
+		}
+		finally
+		{
+			graphics.dispose();
+		}
+	}
+
+	/** Runs the stream from its first layout; returns how many events changed the shadows. */
+	private static int replay(ShadowEngine engine, int[][] layouts)
+	{
+		engine.getShadows().clear();
+		engine.initialize(layouts[0], SIZE);
+		int changes = 0;
+		for (int i = 1; i < layouts.length; i++)
+		{
+			if (engine.apply(layouts[i], SIZE))
+			{
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	/** The overlay's per-frame path: rebuild the layer if anything changed, then blit it. */
+	private static void frames(ShadowLayer layer, ShadowSnapshot snapshot, BufferedImage sprite, Graphics2D graphics, int count, boolean invalidate)
+	{
+		ShadowLayer.SpriteSource sprites = id -> sprite;
+		for (int i = 0; i < count; i++)
+		{
+			if (invalidate)
+			{
+				layer.invalidate();
+			}
+			if (layer.isStale(snapshot, FIXED_INVENTORY, 0))
+			{
+				layer.rebuild(snapshot, FIXED_INVENTORY, sprites, 0);
+			}
+			layer.draw(graphics);
+		}
+	}
+
+	/**
+	 * A seeded mix of what a trip does to an inventory: items used up or dropped, items
+	 * withdrawn into free slots (often the ones that were shadowed), drags and whole-inventory
+	 * deposits and withdrawals, with a handful of repeated item IDs.
+	 */
+	private static int[][] events(int count, long seed)
+	{
+		Random random = new Random(seed);
+		int[] start = new int[SIZE];
+		for (int slot = 0; slot < SIZE; slot++)
+		{
+			start[slot] = slot < 24 ? item(random) : SlotTable.EMPTY;
+		}
+		int[][] layouts = new int[count + 1][];
+		layouts[0] = start.clone();
+		int[] current = start.clone();
+		for (int i = 1; i <= count; i++)
+		{
+			int roll = random.nextInt(100);
+			int slot = random.nextInt(SIZE);
+			if (roll < 35)
+			{
+				current[slot] = SlotTable.EMPTY;
+			}
+			else if (roll < 75)
+			{
+				current[slot] = current[slot] == SlotTable.EMPTY ? item(random) : current[slot];
+			}
+			else if (roll < 95)
+			{
+				int other = random.nextInt(SIZE);
+				int moved = current[slot];
+				current[slot] = current[other];
+				current[other] = moved;
+			}
+			else if (roll < 97)
+			{
+				Arrays.fill(current, SlotTable.EMPTY);
+			}
+			else
+			{
+				current = start.clone();
+			}
+			layouts[i] = current.clone();
+		}
+		return layouts;
+	}
+
+	private static int item(Random random)
+	{
+		return 1000 + random.nextInt(12);
+	}
+
+	private static ShadowSnapshot snapshot(int shadows)
+	{
+		ShadowEngine engine = new ShadowEngine(SIZE, id -> id);
+		for (int slot = 0; slot < shadows; slot++)
+		{
+			engine.getShadows().put(slot, 20000 + slot);
+		}
+		engine.publish();
+		return engine.getSnapshot();
+	}
+
+	private static BufferedImage sprite()
+	{
+		BufferedImage item = new BufferedImage(36, 32, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = item.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillOval(4, 2, 28, 28);
+		g.dispose();
+		return ShadowSpriteCache.buildSprite(item, ShadowStyle.FADED, new Color(0, 0, 0, 128));
+	}
+
+	private long allocated()
+	{
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static void assertWithin(String operation, long bytes, long budget)
+	{
+		assertTrue(operation + " allocated " + bytes + " bytes per operation; budget is " + budget, bytes <= budget);
+	}
+
+	private static com.sun.management.ThreadMXBean threadBean()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+		{
+			return null;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported())
+		{
+			return null;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+}
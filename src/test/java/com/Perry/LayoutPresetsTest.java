@@ -0,0 +1,50 @@
+package com.Perry;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutPresetsTest
+{
+	private static final String BASE = ShadowPersistence.SHADOW_DATA_KEY;
+
+	@Test
+	public void parseTrimsAndDropsBlanksDuplicatesAndDefault()
+	{
+		List<String> presets = LayoutPresets.parse(" Zulrah, ,Barrows,zulrah ,default, !!, Skilling ");
+		assertEquals(Arrays.asList("Zulrah", "Barrows", "Skilling"), presets);
+		assertTrue(LayoutPresets.parse(null).isEmpty());
+		assertTrue(LayoutPresets.parse("  ").isEmpty());
+	}
+
+	@Test
+	public void defaultLayoutKeepsTheOriginalKey()
+	{
+		assertEquals(BASE, LayoutPresets.dataKey(BASE, LayoutPresets.DEFAULT_NAME));
+		assertEquals(BASE, LayoutPresets.dataKey(BASE, null));
+		assertEquals(BASE, LayoutPresets.dataKey(BASE, " DEFAULT "));
+	}
+
+	@Test
+	public void presetKeysAreSanitisedAndDistinct()
+	{
+		assertEquals(BASE + ".preset.tob_mage", LayoutPresets.dataKey(BASE, "ToB - Mage"));
+		assertEquals(LayoutPresets.dataKey(BASE, "tob mage"), LayoutPresets.dataKey(BASE, "ToB - Mage"));
+		assertNotEquals(LayoutPresets.dataKey(BASE, "Zulrah"), LayoutPresets.dataKey(BASE, "Barrows"));
+	}
+
+	@Test
+	public void nextCyclesThroughDefaultAndEveryPreset()
+	{
+		List<String> presets = LayoutPresets.parse("Zulrah, Barrows");
+		assertEquals("Zulrah", LayoutPresets.next(presets, LayoutPresets.DEFAULT_NAME));
+		assertEquals("Barrows", LayoutPresets.next(presets, "zulrah"));
+		assertEquals(LayoutPresets.DEFAULT_NAME, LayoutPresets.next(presets, "Barrows"));
+		assertEquals(LayoutPresets.DEFAULT_NAME, LayoutPresets.next(presets, "Removed"));
+		assertEquals(LayoutPresets.DEFAULT_NAME, LayoutPresets.next(LayoutPresets.parse(""), LayoutPresets.DEFAULT_NAME));
+	}
+}
@@ -0,0 +1,64 @@
+package com.Perry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ManualShadowConfigTest
+{
+	private static final int SIZE = PerryVentoryPlugin.INVENTORY_SIZE;
+	private static final int E = SlotTable.EMPTY;
+
+	@Test
+	public void slotForKeyOnlyMatchesManualSlotKeys()
+	{
+		for (int slot = 0; slot < SIZE; slot++)
+		{
+			assertEquals(slot, ManualShadowConfig.slotForKey(ManualShadowConfig.slotKey(slot)));
+		}
+		assertEquals(-1, ManualShadowConfig.slotForKey("slotItem"));
+		assertEquals(-1, ManualShadowConfig.slotForKey("slot28Item"));
+		assertEquals(-1, ManualShadowConfig.slotForKey("slot1xItem"));
+		assertEquals(-1, ManualShadowConfig.slotForKey("shadowColor"));
+	}
+
+	@Test
+	public void parseItemIdRejectsBlankInvalidAndNonPositive()
+	{
+		assertEquals(12934, ManualShadowConfig.parseItemId(" 12934 "));
+		assertEquals(E, ManualShadowConfig.parseItemId(null));
+		assertEquals(E, ManualShadowConfig.parseItemId(""));
+		assertEquals(E, ManualShadowConfig.parseItemId("abc"));
+		assertEquals(E, ManualShadowConfig.parseItemId("0"));
+		assertEquals(E, ManualShadowConfig.parseItemId("-5"));
+	}
+
+	@Test
+	public void parseLayoutReadsPairsAndSkipsMalformedOnes()
+	{
+		SlotTable layout = new SlotTable(SIZE);
+		layout.put(10, 1);
+		int skipped = ManualShadowConfig.parseLayout("1:12934,2:12934\n 28:8013; 29:1 x 5: 0:7 3:0 4:abc 2:995", layout);
+		assertEquals(6, skipped);
+		assertEquals(3, layout.size());
+		assertEquals(12934, layout.get(0));
+		assertEquals(995, layout.get(1)); // Later pair for the same slot wins
+		assertEquals(8013, layout.get(27));
+		assertEquals(E, layout.get(10));
+	}
+
+	@Test
+	public void encodeLayoutRoundTrips()
+	{
+		SlotTable layout = new SlotTable(SIZE);
+		layout.put(0, 12934);
+		layout.put(27, 8013);
+		String packed = ManualShadowConfig.encodeLayout(layout);
+		assertEquals("1:12934, 28:8013", packed);
+
+		SlotTable parsed = new SlotTable(SIZE);
+		assertEquals(0, ManualShadowConfig.parseLayout(packed, parsed));
+		assertEquals(layout.toString(), parsed.toString());
+		assertEquals("", ManualShadowConfig.encodeLayout(new SlotTable(SIZE)));
+	}
+}
@@ -0,0 +1,69 @@
+package com.Perry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerryMetricsTest
+{
+	private static final int BUCKETS = PerryMetrics.Histogram.BUCKETS;
+
+	@Test
+	public void bucketsAreContiguousAndWithinAnEighth()
+	{
+		int previous = -1;
+		for (long value = 0; value < 1 << 20; value++)
+		{
+			int bucket = PerryMetrics.Histogram.bucketOf(value);
+			assertTrue(bucket == previous || bucket == previous + 1);
+			long lower = PerryMetrics.Histogram.lowerBound(bucket);
+			assertTrue(lower <= value && value - lower <= value / 8);
+			previous = bucket;
+		}
+		assertEquals(BUCKETS - 1, PerryMetrics.Histogram.bucketOf(Long.MAX_VALUE));
+		assertEquals(0, PerryMetrics.Histogram.bucketOf(-5));
+	}
+
+	@Test
+	public void percentilesComeFromDrainedCounts()
+	{
+		PerryMetrics.Histogram histogram = new PerryMetrics.Histogram();
+		for (int i = 0; i < 98; i++)
+		{
+			histogram.record(1000);
+		}
+		histogram.record(50_000);
+		histogram.record(50_000);
+
+		long[] counts = new long[BUCKETS];
+		histogram.drainTo(counts);
+		assertEquals(PerryMetrics.Histogram.lowerBound(PerryMetrics.Histogram.bucketOf(1000)), PerryMetrics.Histogram.percentile(counts, 0.5));
+		assertEquals(PerryMetrics.Histogram.lowerBound(PerryMetrics.Histogram.bucketOf(50_000)), PerryMetrics.Histogram.percentile(counts, 0.99));
+
+		long[] next = new long[BUCKETS];
+		histogram.drainTo(next);
+		assertEquals(-1, PerryMetrics.Histogram.percentile(next, 0.5));
+	}
+
+	@Test
+	public void disabledMetricsRecordNothing()
+	{
+		PerryMetrics metrics = new PerryMetrics();
+		assertEquals(0, metrics.startTimer());
+		metrics.recordSave(100);
+		metrics.recordJournalWrite(12);
+		metrics.recordGeometryLookup(true);
+		assertEquals(0, metrics.getSaves());
+		assertEquals(0, metrics.getJournalWrites());
+		assertEquals(0, metrics.getGeometryHits());
+
+		metrics.setEnabled(true);
+		metrics.recordSave(100);
+		assertEquals(1, metrics.getSaves());
+		assertEquals(100, metrics.getSavedBytes());
+		metrics.recordJournalWrite(12);
+		assertEquals(1, metrics.getJournalWrites());
+		assertEquals(12, metrics.getJournalBytes());
+	}
+}
@@ -0,0 +1,140 @@
+package com.Perry;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShadowCodecTest
+{
+	private static final int SIZE = PerryVentoryPlugin.INVENTORY_SIZE;
+
+	private final Gson legacyGson = new GsonBuilder()
+		.registerTypeAdapter(SlotTable.class, new SlotTableTypeAdapter(SIZE))
+		.create();
+
+	@Test
+	public void roundTripsEmptyTable()
+	{
+		assertRoundTrip(new SlotTable(SIZE));
+	}
+
+	@Test
+	public void roundTripsFullTable()
+	{
+		SlotTable table = new SlotTable(SIZE);
+		for (int slot = 0; slot < SIZE; slot++)
+		{
+			table.put(slot, 20000 + slot * 37);
+		}
+		assertRoundTrip(table);
+	}
+
+	@Test
+	public void roundTripsSparseTableWithDescendingAndZeroIds()
+	{
+		SlotTable table = new SlotTable(SIZE);
+		table.put(0, 27000);
+		table.put(3, 0);
+		table.put(13, 995);
+		table.put(14, 995);
+		table.put(27, 12934);
+		assertRoundTrip(table);
+	}
+
+	@Test
+	public void roundTripsLargeIds()
+	{
+		SlotTable table = new SlotTable(SIZE);
+		table.put(1, Integer.MAX_VALUE);
+		table.put(2, 0);
+		table.put(5, Integer.MAX_VALUE);
+		assertRoundTrip(table);
+	}
+
+	@Test
+	public void encodingIsSmallerThanLegacyJson()
+	{
+		SlotTable table = new SlotTable(SIZE);
+		// A typical PvM layout: duplicate food and potions, a few unique items
+		int[] layout = {
+			12695, 12695, 3024, 3024, 2434, 2434, 2434, 2434,
+			385, 385, 385, 385, 385, 385, 385, 385,
+			6685, 6685, 6685, 6685, 12625, 995, 8013, 11090,
+			385, 385, 385, 385
+		};
+		for (int slot = 0; slot < SIZE; slot++)
+		{
+			table.put(slot, layout[slot]);
+		}
+
+		String encoded = ShadowCodec.encode(table);
+		String json = legacyGson.toJson(table, SlotTable.class);
+		assertTrue("encoded " + encoded.length() + " chars vs json " + json.length(),
+			encoded.length() * 3 < json.length());
+	}
+
+	@Test
+	public void legacyJsonIsDetectedAndStillParses()
+	{
+		String json = "{\"0\":385,\"5\":995,\"27\":2434}";
+		assertTrue(ShadowCodec.isLegacyJson(json));
+		assertTrue(ShadowCodec.isLegacyJson("  " + json));
+
+		SlotTable table = legacyGson.fromJson(json, SlotTable.class);
+		assertEquals(3, table.size());
+		assertEquals(995, table.get(5));
+
+		String encoded = ShadowCodec.encode(table);
+		assertFalse(ShadowCodec.isLegacyJson(encoded));
+		assertRoundTrip(table);
+	}
+
+	@Test
+	public void rejectsUnknownVersion()
+	{
+		String encoded = ShadowCodec.encode(new SlotTable(SIZE));
+		byte[] data = java.util.Base64.getDecoder().decode(encoded);
+		data[0] = (byte) (ShadowCodec.VERSION + 1);
+		try
+		{
+			ShadowCodec.decode(java.util.Base64.getEncoder().encodeToString(data), new SlotTable(SIZE));
+			fail("expected an unsupported version error");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+	}
+
+	@Test
+	public void rejectsTruncatedData()
+	{
+		SlotTable table = new SlotTable(SIZE);
+		table.put(4, 4151);
+		String encoded = ShadowCodec.encode(table);
+		try
+		{
+			ShadowCodec.decode(encoded.substring(0, encoded.length() - 2), new SlotTable(SIZE));
+			fail("expected a truncation error");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+	}
+
+	private static void assertRoundTrip(SlotTable table)
+	{
+		SlotTable decoded = new SlotTable(SIZE);
+		decoded.put(9, 1); // Must be cleared by decode
+		ShadowCodec.decode(ShadowCodec.encode(table), decoded);
+		assertEquals(table.size(), decoded.size());
+		for (int slot = 0; slot < SIZE; slot++)
+		{
+			assertEquals("slot " + slot, table.get(slot), decoded.get(slot));
+		}
+	}
+}
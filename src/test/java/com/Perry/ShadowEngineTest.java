@@ -0,0 +1,376 @@
+package com.Perry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShadowEngineTest
+{
+	private static final int SIZE = PerryVentoryPlugin.INVENTORY_SIZE;
+	private static final int E = SlotTable.EMPTY;
+
+	private final ShadowEngine engine = new ShadowEngine(SIZE, id -> id);
+
+	@Test
+	public void movingAnItemLeavesNoShadow()
+	{
+		int[] layout = layout(1000, 2000);
+		engine.initialize(layout, SIZE);
+
+		layout[0] = E;
+		layout[5] = 1000;
+		assertFalse(engine.apply(layout, SIZE));
+		assertTrue(engine.getShadows().isEmpty());
+	}
+
+	@Test
+	public void removingAnItemLeavesAShadowUntilItReturns()
+	{
+		int[] layout = layout(1000, 2000);
+		engine.initialize(layout, SIZE);
+
+		layout[1] = E;
+		assertTrue(engine.apply(layout, SIZE));
+		assertEquals(2000, engine.getShadows().get(1));
+
+		layout[7] = 2000;
+		assertTrue(engine.apply(layout, SIZE));
+		assertTrue(engine.getShadows().isEmpty());
+	}
+
+	@Test
+	public void onlySurplusDuplicatesLeaveShadows()
+	{
+		int[] layout = layout(1000, 1000, 1000);
+		engine.initialize(layout, SIZE);
+
+		// One unit lost, the other two swap places: a single shadow
+		layout[0] = E;
+		layout[1] = E;
+		layout[4] = 1000;
+		engine.apply(layout, SIZE);
+		assertEquals(1, engine.getShadows().size());
+		assertEquals(1000, engine.getShadows().get(engine.getShadows().nextSlot(0)));
+	}
+
+	@Test
+	public void displacedShadowMovesToNearestFreeSlot()
+	{
+		ShadowEngine grid = new ShadowEngine(SIZE, 4, id -> id);
+		int[] layout = layout(1000, 2000);
+		grid.initialize(layout, SIZE);
+		layout[0] = E;
+		grid.apply(layout, SIZE);
+
+		// Slot 1 is taken, so the slot below (4) is the closest free one
+		layout[0] = 3000;
+		assertTrue(grid.apply(layout, SIZE));
+		assertEquals(E, grid.getShadows().get(0));
+		assertEquals(1000, grid.getShadows().get(4));
+		assertEquals(1, grid.lastShadowsRelocated());
+	}
+
+	@Test
+	public void relocationPolicyChoosesWhereDisplacedShadowsGo()
+	{
+		assertEquals(4, relocatedSlot(RelocationPolicy.NEAREST));
+		assertEquals(13, relocatedSlot(RelocationPolicy.SAME_COLUMN));
+		assertEquals(-1, relocatedSlot(RelocationPolicy.DROP));
+	}
+
+	@Test
+	public void shadowsRestoredUnderItemsAreDisplaced()
+	{
+		ShadowEngine grid = new ShadowEngine(SIZE, 4, id -> id);
+		int[] layout = layout(1000, 2000);
+		grid.initialize(layout, SIZE);
+		assertFalse(grid.displaceCovered());
+
+		// An undo puts a shadow back on slot 1, where an item sits now
+		grid.getShadows().put(1, 3000);
+		assertTrue(grid.displaceCovered());
+		assertEquals(E, grid.getShadows().get(1));
+		assertEquals(3000, grid.getShadows().get(2));
+		assertEquals(3000, grid.getSnapshot().get(2));
+		assertEquals(1, grid.lastShadowsRelocated());
+	}
+
+	@Test
+	public void displacedShadowIsDroppedWhenNoSlotIsFree()
+	{
+		int[] layout = new int[SIZE];
+		for (int slot = 0; slot < SIZE; slot++)
+		{
+			layout[slot] = 1000 + slot;
+		}
+		engine.initialize(layout, SIZE);
+		layout[0] = E;
+		engine.apply(layout, SIZE);
+
+		layout[0] = 5000;
+		assertTrue(engine.apply(layout, SIZE));
+		assertTrue(engine.getShadows().isEmpty());
+		assertEquals(0, engine.lastShadowsRelocated());
+	}
+
+	@Test
+	public void canonicalizerMergesVariants()
+	{
+		ShadowEngine noted = new ShadowEngine(SIZE, id -> id == 1001 ? 1000 : id);
+		int[] layout = layout(1000);
+		noted.initialize(layout, SIZE);
+
+		layout[0] = E;
+		layout[3] = 1001;
+		assertFalse(noted.apply(layout, SIZE));
+		assertTrue(noted.getShadows().isEmpty());
+	}
+
+	@Test
+	public void unchangedLayoutIsSkippedByFingerprint()
+	{
+		int[] layout = layout(1000, 2000);
+		engine.initialize(layout, SIZE);
+
+		assertFalse(engine.apply(layout.clone(), SIZE));
+		assertEquals(1, engine.getEventsSkipped());
+		assertEquals(0, engine.getEventsProcessed());
+
+		layout[0] = E;
+		assertTrue(engine.apply(layout, SIZE));
+		assertEquals(1, engine.getEventsProcessed());
+		assertEquals(1000, engine.getShadows().get(0));
+	}
+
+	@Test
+	public void fingerprintIsSensitiveToSlotOrder()
+	{
+		assertEquals(ShadowEngine.fingerprint(layout(1000, 2000), SIZE), ShadowEngine.fingerprint(layout(1000, 2000), SIZE));
+		assertNotEquals(ShadowEngine.fingerprint(layout(1000, 2000), SIZE), ShadowEngine.fingerprint(layout(2000, 1000), SIZE));
+		assertNotEquals(ShadowEngine.fingerprint(layout(1000), SIZE), ShadowEngine.fingerprint(layout(E, 1000), SIZE));
+	}
+
+	@Test
+	public void bankWithdrawalLeavesAShadowThatShiftsWithTheBank()
+	{
+		int bankSize = 1420;
+		ShadowEngine bank = new ShadowEngine(bankSize, 0, true, id -> id);
+		int[] layout = bankLayout(bankSize, 1000);
+		bank.initialize(layout, bankSize);
+
+		// Withdrawing slot 500 closes the gap: one shadow in front of the item that moved up
+		layout = withdraw(layout, 500);
+		assertTrue(bank.apply(layout, bankSize));
+		assertEquals(5500, bank.getShadows().get(500));
+		assertEquals(1, bank.getShadows().size());
+		assertEquals(500, bank.lastChangedSlots());
+
+		// A withdrawal before it shifts the shadow down with the items behind
+		layout = withdraw(layout, 10);
+		assertTrue(bank.apply(layout, bankSize));
+		assertEquals(5010, bank.getShadows().get(10));
+		assertEquals(5500, bank.getShadows().get(499));
+		assertEquals(5501, layout[499]);
+
+		// Depositing an item into the middle shifts it back up; depositing the withdrawn one clears it
+		layout = deposit(layout, 200, 9999);
+		assertTrue(bank.apply(layout, bankSize));
+		assertEquals(5500, bank.getShadows().get(500));
+		layout = deposit(layout, 500, 5500);
+		assertTrue(bank.apply(layout, bankSize));
+		assertFalse(bank.isShadowed(5500));
+		assertTrue(bank.isShadowed(5010));
+	}
+
+	@Test
+	public void bankPlaceholdersKeepTheirSlot()
+	{
+		// Placeholders (IDs 20000+) canonicalise to their real item
+		ShadowEngine bank = new ShadowEngine(100, 0, true, id -> id >= 20000 ? id - 20000 : id);
+		int[] layout = bankLayout(100, 50);
+		bank.initialize(layout, 100);
+
+		layout[7] = 20000 + layout[7];
+		assertFalse(bank.apply(layout, 100));
+		assertTrue(bank.getShadows().isEmpty());
+
+		// Releasing the placeholder compacts the bank like a withdrawal
+		layout = withdraw(layout, 7);
+		assertTrue(bank.apply(layout, 100));
+		assertEquals(5007, bank.getShadows().get(7));
+		assertFalse(bank.displaceCovered());
+	}
+
+	@Test
+	public void returningItemClearsNearestDuplicateShadow()
+	{
+		ShadowEngine grid = new ShadowEngine(SIZE, PerryVentoryPlugin.INVENTORY_COLUMNS, id -> id);
+		int[] layout = layout();
+		layout[0] = 385;
+		layout[3] = 385;
+		layout[24] = 385;
+		grid.initialize(layout, SIZE);
+
+		layout[0] = E;
+		layout[3] = E;
+		layout[24] = E;
+		grid.apply(layout, SIZE);
+		assertEquals(3, grid.shadowCount(385));
+
+		// Slot 20 sits directly above slot 24: that shadow goes, not the lowest-numbered one
+		layout[20] = 385;
+		grid.apply(layout, SIZE);
+		assertEquals(385, grid.getShadows().get(0));
+		assertEquals(385, grid.getShadows().get(3));
+		assertEquals(E, grid.getShadows().get(24));
+
+		// Slot 7 is one row below slot 3 and two rows from slot 0
+		layout[7] = 385;
+		grid.apply(layout, SIZE);
+		assertEquals(385, grid.getShadows().get(0));
+		assertEquals(E, grid.getShadows().get(3));
+		assertTrue(grid.isShadowed(385));
+		assertTrue(grid.getSnapshot().isShadowed(385));
+		assertFalse(grid.getSnapshot().isShadowed(386));
+	}
+
+	@Test
+	public void snapshotResolvesManualOverAutomaticAndOnlyChangesOnPublish()
+	{
+		engine.getShadows().put(0, 1000);
+		engine.getShadows().put(1, 2000);
+		engine.getManual().put(1, 3000);
+		assertTrue(engine.getSnapshot().isEmpty());
+
+		assertTrue(engine.publish());
+		ShadowSnapshot first = engine.getSnapshot();
+		assertEquals(1000, first.get(0));
+		assertEquals(3000, first.get(1));
+		assertEquals(2, first.size());
+		assertFalse(engine.publish());
+
+		engine.getManual().remove(1);
+		assertEquals(3000, first.get(1));
+		assertTrue(engine.publish());
+		assertEquals(2000, engine.getSnapshot().get(1));
+		assertTrue(engine.getSnapshot().getVersion() > first.getVersion());
+	}
+
+	@Test
+	public void traceRoundTripReplaysToSameState() throws Exception
+	{
+		int[] start = layout(1000, 2000, 3000);
+		int[] dropped = start.clone();
+		dropped[1] = E;
+		int[] moved = dropped.clone();
+		moved[0] = E;
+		moved[10] = 1000;
+
+		Path file = Files.createTempFile("perryventory", ".trace");
+		try
+		{
+			try (InventoryTrace.Recorder recorder = InventoryTrace.create(file))
+			{
+				recorder.record(1L, start, SIZE);
+				recorder.record(2L, dropped, SIZE);
+				recorder.record(3L, moved, SIZE);
+			}
+			List<InventoryTrace.Frame> frames = InventoryTrace.read(file);
+			assertEquals(3, frames.size());
+			assertEquals(2L, frames.get(1).timestamp);
+			assertArrayEquals(moved, frames.get(2).itemIds);
+
+			int[][] layouts = new int[frames.size()][];
+			for (int i = 0; i < layouts.length; i++)
+			{
+				layouts[i] = frames.get(i).itemIds;
+			}
+			assertEquals(1, ShadowReplay.replay(engine, layouts));
+			assertEquals(1, engine.getShadows().size());
+			assertEquals(2000, engine.getShadows().get(1));
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void traceRecorderFlushesDuringTheSession() throws Exception
+	{
+		int[] start = layout(1000, 2000, 3000);
+		Path file = Files.createTempFile("perryventory", ".trace");
+		try (InventoryTrace.Recorder recorder = InventoryTrace.create(file))
+		{
+			recorder.record(1L, start, SIZE);
+			assertEquals(0, Files.size(file)); // Still buffered, header included
+			recorder.record(1L + InventoryTrace.Recorder.FLUSH_INTERVAL_MILLIS, start, SIZE);
+			assertEquals(2, InventoryTrace.read(file).size());
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/** Covers a shadow at slot 5 whose column neighbours (1 and 9) are taken; returns where it went. */
+	private static int relocatedSlot(RelocationPolicy policy)
+	{
+		ShadowEngine grid = new ShadowEngine(SIZE, 4, id -> id);
+		grid.setRelocationPolicy(policy);
+		int[] layout = layout(E, 1000, E, E, E, 2000, E, E, E, 3000);
+		grid.initialize(layout, SIZE);
+		layout[5] = E;
+		grid.apply(layout, SIZE);
+
+		layout[5] = 4000;
+		assertTrue(grid.apply(layout, SIZE));
+		assertEquals(E, grid.getShadows().get(5));
+		assertTrue(grid.getShadows().size() <= 1);
+		return grid.getShadows().nextSlot(0);
+	}
+
+	/** A compacted bank holding items 5000.. in its first {@code items} slots. */
+	private static int[] bankLayout(int size, int items)
+	{
+		int[] layout = new int[size];
+		Arrays.fill(layout, E);
+		for (int slot = 0; slot < items; slot++)
+		{
+			layout[slot] = 5000 + slot;
+		}
+		return layout;
+	}
+
+	private static int[] withdraw(int[] bank, int slot)
+	{
+		int[] next = bank.clone();
+		System.arraycopy(bank, slot + 1, next, slot, bank.length - slot - 1);
+		next[bank.length - 1] = E;
+		return next;
+	}
+
+	private static int[] deposit(int[] bank, int slot, int itemId)
+	{
+		int[] next = bank.clone();
+		System.arraycopy(bank, slot, next, slot + 1, bank.length - slot - 1);
+		next[slot] = itemId;
+		return next;
+	}
+
+	private static int[] layout(int... leading)
+	{
+		int[] layout = new int[SIZE];
+		Arrays.fill(layout, E);
+		System.arraycopy(leading, 0, layout, 0, leading.length);
+		return layout;
+	}
+}
@@ -0,0 +1,197 @@
+package com.Perry;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShadowJournalTest
+{
+	private static final int SIZE = PerryVentoryPlugin.INVENTORY_SIZE;
+	private static final Executor DIRECT = Runnable::run;
+
+	private Path dir;
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		dir = Files.createTempDirectory("perryventory-journal");
+		file = dir.resolve("profile").resolve("reservedSlotsData.journal");
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(file.getParent());
+		Files.deleteIfExists(dir);
+	}
+
+	@Test
+	public void reopeningReplaysRecordedChangesOverTheSnapshot() throws IOException
+	{
+		SlotTable snapshot = table(0, 1000);
+		SlotTable state = copy(snapshot);
+		ShadowJournal journal = open(state, snapshot);
+		state.put(3, 2000);
+		assertTrue(journal.record(state));
+		state.remove(0);
+		assertTrue(journal.record(state));
+		assertFalse(journal.record(state));
+		journal.close();
+
+		SlotTable recovered = copy(snapshot);
+		ShadowJournal reopened = open(recovered, snapshot);
+		assertEquals(2, reopened.replayedSteps());
+		assertEquals(state.toString(), recovered.toString());
+		reopened.close();
+	}
+
+	@Test
+	public void undoAndRedoWalkTheHistoryAndSurviveARestart() throws IOException
+	{
+		SlotTable snapshot = new SlotTable(SIZE);
+		SlotTable state = copy(snapshot);
+		ShadowJournal journal = open(state, snapshot);
+		state.put(1, 1000);
+		journal.record(state);
+		state.put(2, 2000);
+		state.put(5, 3000);
+		journal.record(state);
+
+		assertTrue(journal.undo(state));
+		assertEquals("{1=1000}", state.toString());
+		assertTrue(journal.undo(state));
+		assertEquals("{}", state.toString());
+		assertFalse(journal.undo(state));
+		assertTrue(journal.redo(state));
+		assertEquals("{1=1000}", state.toString());
+		journal.close();
+
+		SlotTable recovered = copy(snapshot);
+		ShadowJournal reopened = open(recovered, snapshot);
+		assertEquals("{1=1000}", recovered.toString());
+		assertTrue(reopened.canRedo());
+		assertTrue(reopened.redo(recovered));
+		assertEquals("{1=1000, 2=2000, 5=3000}", recovered.toString());
+
+		// A new change drops what could still be redone
+		assertTrue(reopened.undo(recovered));
+		recovered.put(7, 4000);
+		reopened.record(recovered);
+		assertFalse(reopened.canRedo());
+		reopened.close();
+	}
+
+	@Test
+	public void tornStepAtTheEndIsIgnored() throws IOException
+	{
+		SlotTable snapshot = new SlotTable(SIZE);
+		SlotTable state = copy(snapshot);
+		ShadowJournal journal = open(state, snapshot);
+		state.put(1, 1000);
+		journal.record(state);
+		state.put(2, 2000);
+		state.put(3, 3000);
+		journal.record(state);
+		journal.close();
+
+		// Crash halfway through the second step: its closing record never made it
+		long size = Files.size(file);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+		{
+			channel.truncate(size - ShadowJournal.RECORD_BYTES - 5);
+		}
+
+		SlotTable recovered = copy(snapshot);
+		ShadowJournal reopened = open(recovered, snapshot);
+		assertEquals(1, reopened.replayedSteps());
+		assertEquals("{1=1000}", recovered.toString());
+		reopened.close();
+		assertEquals(ShadowJournal.HEADER_BYTES + ShadowJournal.RECORD_BYTES, Files.size(file));
+	}
+
+	@Test
+	public void journalForAnotherSnapshotIsDiscarded() throws IOException
+	{
+		SlotTable snapshot = new SlotTable(SIZE);
+		SlotTable state = copy(snapshot);
+		ShadowJournal journal = open(state, snapshot);
+		state.put(1, 1000);
+		journal.record(state);
+		journal.close();
+
+		SlotTable elsewhere = table(9, 9000);
+		SlotTable recovered = copy(elsewhere);
+		ShadowJournal reopened = open(recovered, elsewhere);
+		assertEquals(0, reopened.replayedSteps());
+		assertEquals("{9=9000}", recovered.toString());
+		reopened.close();
+	}
+
+	@Test
+	public void compactionKeepsOnlyTheLastGenerationAndReplaysOverEitherSnapshot() throws IOException
+	{
+		SlotTable first = new SlotTable(SIZE);
+		SlotTable state = copy(first);
+		ShadowJournal journal = open(state, first);
+		state.put(1, 1000);
+		journal.record(state);
+		SlotTable second = copy(state);
+		journal.compact(ShadowJournal.hash(second));
+
+		state.put(2, 2000);
+		journal.record(state);
+		state.remove(1);
+		journal.record(state);
+		SlotTable third = copy(state);
+		journal.compact(ShadowJournal.hash(third));
+		state.put(4, 4000);
+		journal.record(state);
+		journal.close();
+
+		// The first step is gone; the file holds the two steps after the second snapshot and one more
+		assertEquals(ShadowJournal.HEADER_BYTES + 3L * ShadowJournal.RECORD_BYTES, Files.size(file));
+
+		for (SlotTable snapshot : new SlotTable[]{second, third})
+		{
+			SlotTable recovered = copy(snapshot);
+			ShadowJournal reopened = open(recovered, snapshot);
+			assertEquals(state.toString(), recovered.toString());
+			reopened.close();
+		}
+
+		SlotTable stale = copy(first);
+		open(stale, first).close();
+		assertEquals("{}", stale.toString());
+	}
+
+	private ShadowJournal open(SlotTable state, SlotTable snapshot) throws IOException
+	{
+		return ShadowJournal.open(file, state, ShadowJournal.hash(snapshot), DIRECT, new PerryMetrics());
+	}
+
+	private static SlotTable table(int slot, int itemId)
+	{
+		SlotTable table = new SlotTable(SIZE);
+		table.put(slot, itemId);
+		return table;
+	}
+
+	private static SlotTable copy(SlotTable source)
+	{
+		SlotTable copy = new SlotTable(SIZE);
+		copy.copyFrom(source);
+		return copy;
+	}
+}
@@ -0,0 +1,112 @@
+package com.Perry;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Replays a recorded inventory trace through {@link ShadowEngine} and reports throughput,
+ * allocations per event and the final shadow state.
+ * <p>
+ * Record a trace with the plugin's "Record Inventory Trace" option, then run
+ * {@code ./gradlew replay -Ptrace=path/to/inventory-....trace [-Piterations=N]}.
+ * Item IDs are replayed as recorded (no canonicalisation), so noted/placeholder variants count
+ * as distinct items.
+ */
+public class ShadowReplay
+{
+	private static final int DEFAULT_ITERATIONS = 200;
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: ShadowReplay <trace file> [iterations]");
+			System.exit(2);
+		}
+		Path file = Paths.get(args[0]);
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+
+		List<InventoryTrace.Frame> frames = InventoryTrace.read(file);
+		if (frames.size() < 2)
+		{
+			System.err.println("Trace needs an initial layout and at least one change: " + file);
+			System.exit(1);
+		}
+		int[][] layouts = new int[frames.size()][];
+		for (int i = 0; i < layouts.length; i++)
+		{
+			layouts[i] = frames.get(i).itemIds;
+		}
+		int events = layouts.length - 1;
+
+		// One pass for the reported state, then warm up and measure repeated passes
+		ShadowEngine engine = new ShadowEngine(PerryVentoryPlugin.INVENTORY_SIZE, id -> id);
+		int changes = replay(engine, layouts);
+		System.out.println("Trace:           " + file + " (" + events + " events)");
+		System.out.println("Shadow changes:  " + changes);
+		System.out.println("Final shadows:   " + engine.getShadows());
+		System.out.println("Layout changes:  " + engine.getEventsProcessed() + " processed, " + engine.getEventsSkipped() + " skipped (unchanged)");
+
+		for (int i = 0; i < Math.max(1, iterations / 10); i++)
+		{
+			replay(engine, layouts);
+		}
+
+		com.sun.management.ThreadMXBean threads = threadBean();
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads != null ? threads.getThreadAllocatedBytes(threadId) : -1;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+		{
+			replay(engine, layouts);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocatedAfter = threads != null ? threads.getThreadAllocatedBytes(threadId) : -1;
+
+		long totalEvents = (long) events * iterations;
+		System.out.printf("Events/sec:      %.0f%n", totalEvents / (elapsed / 1e9));
+		System.out.printf("ns/event:        %.1f%n", (double) elapsed / totalEvents);
+		if (allocatedBefore >= 0 && allocatedAfter >= 0)
+		{
+			System.out.printf("Bytes/event:     %.2f%n", (double) (allocatedAfter - allocatedBefore) / totalEvents);
+		}
+		else
+		{
+			System.out.println("Bytes/event:     unavailable (thread allocation accounting unsupported)");
+		}
+	}
+
+	/** Runs the whole trace from its initial layout; returns how many events changed the shadows. */
+	static int replay(ShadowEngine engine, int[][] layouts)
+	{
+		engine.getShadows().clear();
+		engine.initialize(layouts[0], layouts[0].length);
+		int changes = 0;
+		for (int i = 1; i < layouts.length; i++)
+		{
+			if (engine.apply(layouts[i], layouts[i].length))
+			{
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	private static com.sun.management.ThreadMXBean threadBean()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+		{
+			return null;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported())
+		{
+			return null;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+}
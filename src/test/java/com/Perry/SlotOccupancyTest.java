@@ -0,0 +1,108 @@
+package com.Perry;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlotOccupancyTest
+{
+	@Test
+	public void inventoryQueriesMatchAFullScan()
+	{
+		check(28, 4, 1);
+	}
+
+	@Test
+	public void plainListQueriesMatchAFullScan()
+	{
+		check(28, 0, 2);
+		check(1420, 0, 3);
+	}
+
+	@Test
+	public void multiWordGridQueriesMatchAFullScan()
+	{
+		check(200, 8, 4);
+	}
+
+	@Test
+	public void shadowsAndItemsBothOccupyASlot()
+	{
+		SlotOccupancy occupancy = new SlotOccupancy(28, 4);
+		occupancy.setItem(3, true);
+		occupancy.setShadow(7, true);
+		assertFalse(occupancy.isFree(3));
+		assertFalse(occupancy.isFree(7));
+		assertTrue(occupancy.isFree(11));
+
+		occupancy.clearShadows();
+		assertTrue(occupancy.isFree(7));
+		occupancy.setItem(3, false);
+		assertTrue(occupancy.isFree(3));
+
+		// Slots past the current container size never count as free: 4 is closer to 0 than 2 is
+		occupancy.setItem(0, true);
+		occupancy.setItem(1, true);
+		assertEquals(4, occupancy.nearestFree(0, 28));
+		assertEquals(2, occupancy.nearestFree(0, 4));
+		assertEquals(-1, occupancy.nearestFree(0, 2));
+	}
+
+	/** Random occupancy at several densities; every origin and limit is compared with a brute-force search. */
+	private static void check(int capacity, int columns, long seed)
+	{
+		Random random = new Random(seed);
+		for (int round = 0; round < 20; round++)
+		{
+			SlotOccupancy occupancy = new SlotOccupancy(capacity, columns);
+			boolean[] taken = new boolean[capacity];
+			int density = round * 5;
+			for (int slot = 0; slot < capacity; slot++)
+			{
+				taken[slot] = random.nextInt(100) < density;
+				if (taken[slot])
+				{
+					if (random.nextBoolean())
+					{
+						occupancy.setItem(slot, true);
+					}
+					else
+					{
+						occupancy.setShadow(slot, true);
+					}
+				}
+			}
+			int limit = round % 4 == 0 ? capacity - random.nextInt(capacity / 2) : capacity;
+			for (int origin = 0; origin < limit; origin++)
+			{
+				assertEquals("nearest from " + origin, nearest(taken, limit, columns, origin, false), occupancy.nearestFree(origin, limit));
+				assertEquals("column from " + origin, nearest(taken, limit, columns, origin, true), occupancy.nearestFreeInColumn(origin, limit));
+			}
+		}
+	}
+
+	private static int nearest(boolean[] taken, int limit, int columns, int origin, boolean sameColumn)
+	{
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int slot = 0; slot < limit; slot++)
+		{
+			if (taken[slot] || (sameColumn && columns > 0 && slot % columns != origin % columns))
+			{
+				continue;
+			}
+			int distance = columns > 0
+					? Math.abs(slot / columns - origin / columns) + Math.abs(slot % columns - origin % columns)
+					: Math.abs(slot - origin);
+			if (distance < bestDistance)
+			{
+				best = slot;
+				bestDistance = distance;
+			}
+		}
+		return best;
+	}
+}